@@ -3,10 +3,14 @@ package communication;
 import game.entities.Ability;
 import game.entities.AbilityContour;
 import game.entities.Creature;
+import mechanics.Proficiency;
+import mechanics.actions.Skill;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 
 public class CommsTest {
@@ -31,4 +35,46 @@ public class CommsTest {
     public void testSourceProvide() {
         Assertions.assertEquals(15, creature.abilities().provide(Ability.Type.STR).score());
     }
+
+    @Test
+    public void testMaskResolution() {
+        long mask = Resolvable.mask(Set.of(Ability.Type.DEX, Ability.Type.STR));
+        Assertions.assertEquals(mask, abilityResolvable.mask());
+        Assertions.assertEquals(Ability.Type.STR, creature.abilities().type(mask));
+        Assertions.assertEquals(Ability.Type.DEX, creature.abilities().type(mask & ~1L));
+        Assertions.assertEquals(List.of(Ability.Type.STR, Ability.Type.DEX), abilityResolvable.types());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> creature.abilities().type(0L));
+
+        creature.addSkill(Skill.STEALTH, Proficiency.EXPERTISE);
+        Resolvable<Skill> skills = new Resolvable<>(Skill.ATHLETICS, Skill.STEALTH, Skill.ATHLETICS);
+        Assertions.assertEquals(2, skills.types().size());
+        Assertions.assertEquals(Skill.STEALTH, skills.resolve(creature).type());
+        Assertions.assertEquals(Skill.STEALTH, creature.type(skills.options()));
+        Assertions.assertTrue(new Resolvable<Skill>().isEmpty());
+
+        // Constants of another enum go to the list, even when their ordinal is beyond the first enum
+        Resolvable<AttributeType> mixed = new Resolvable<>(Ability.Type.STR, Skill.STEALTH);
+        Assertions.assertEquals(List.of(Ability.Type.STR, Skill.STEALTH), mixed.types());
+
+        // A source without a bitmask override still resolves enum options through its iterator methods
+        AbilityContour abilities = creature.abilities();
+        Source<Ability.Type> plain = new Source<>() {
+            @Override
+            public Attribute<Ability.Type> resolve(Iterator<Ability.Type> options) {
+                return abilities.resolve(options);
+            }
+
+            @Override
+            public Attribute<Ability.Type> provide(Ability.Type type) {
+                return abilities.provide(type);
+            }
+
+            @Override
+            public Ability.Type type(Iterator<Ability.Type> options) {
+                return abilities.type(options);
+            }
+        };
+        Assertions.assertEquals(abilities.type(mask), new Resolvable<>(Ability.Type.DEX, Ability.Type.STR)
+                .resolve(plain).type());
+    }
 }
@@ -2,21 +2,27 @@ package communication;
 
 import game.entities.Ability;
 
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 
 /**
  * A class that represents a resolvable request for an attribute.
  * This is compatible with Sources of the same AttributeType.
+ * Options that are enum constants are kept as a bitmask over their ordinals, so resolving them against a Source
+ * scans bits instead of walking a list; any other options fall back to a list.
  *
  * @param <T> The type of AttributeType that this Resolvable can resolve.
  */
 public class Resolvable<T extends AttributeType> {
-    // The options that this Resolvable can resolve to.
-    private final LinkedList<T> options = new LinkedList<>();
+    // The enum options that this Resolvable can resolve to, one bit per ordinal.
+    private long mask;
+    // The constants of the options' enum, in ordinal order, known once the first enum option is added.
+    private T[] universe;
+    // The options that do not fit in the bitmask, null while there are none.
+    private List<T> others;
     // The result of the resolution.
     private Attribute<T> result;
 
@@ -27,7 +33,8 @@ public class Resolvable<T extends AttributeType> {
      */
     @SafeVarargs
     public Resolvable(T... options) {
-        this.options.addAll(Arrays.asList(options));
+        for (T option : options)
+            add(option);
     }
 
     /**
@@ -36,7 +43,58 @@ public class Resolvable<T extends AttributeType> {
      * @param options The options that this Resolvable can resolve to.
      */
     public Resolvable(Set<T> options) {
-        this.options.addAll(options);
+        for (T option : options)
+            add(option);
+    }
+
+    /**
+     * Creates a new Resolvable straight from a bitmask of enum options, without adding them one by one.
+     *
+     * @param mask The bitmask of the options, where bit i stands for the constant with ordinal i.
+     * @param universe The constants of the options' enum, in ordinal order.
+     * @return A new Resolvable over the options in the bitmask.
+     * @throws IllegalArgumentException If the bitmask has bits beyond the constants.
+     */
+    public static <E extends Enum<E> & AttributeType> Resolvable<E> of(long mask, E[] universe) {
+        if (universe.length < Long.SIZE && mask >>> universe.length != 0)
+            throw new IllegalArgumentException("Bitmask has options beyond the " + universe.length + " constants: "
+                    + Long.toBinaryString(mask));
+        Resolvable<E> resolvable = new Resolvable<>();
+        resolvable.mask = mask;
+        resolvable.universe = universe;
+        return resolvable;
+    }
+
+    /**
+     * Returns the bitmask of the given enum options, where bit i stands for the option with ordinal i.
+     *
+     * @param options The options to put in the bitmask.
+     * @return The bitmask of the options.
+     */
+    public static long mask(Collection<? extends Enum<?>> options) {
+        long mask = 0;
+        for (Enum<?> option : options)
+            mask |= 1L << option.ordinal();
+        return mask;
+    }
+
+    /**
+     * Adds an option to the bitmask if it is an enum constant of the same enum as the others, or to the list otherwise.
+     *
+     * @param option The option to add.
+     */
+    @SuppressWarnings("unchecked")
+    private void add(T option) {
+        if (option instanceof Enum<?> constant && constant.ordinal() < Long.SIZE
+                && (universe == null || constant.ordinal() < universe.length && universe[constant.ordinal()] == option)) {
+            if (universe == null)
+                universe = (T[]) constant.getDeclaringClass().getEnumConstants();
+            mask |= 1L << constant.ordinal();
+        } else {
+            if (others == null)
+                others = new ArrayList<>();
+            others.add(option);
+        }
     }
 
     /**
@@ -46,16 +104,24 @@ public class Resolvable<T extends AttributeType> {
      * @return The Attribute that this Resolvable resolves to.
      */
     public Attribute<T> resolve(Source<T> source) {
-        set(source.resolve(options.iterator()));
+        set(others == null && mask != 0 ? source.resolve(mask, universe) : source.resolve(options()));
         return result;
     }
 
     /**
-     * Returns an iterator over the options that this Resolvable can resolve to.
+     * Returns the bitmask of the enum options that this Resolvable can resolve to.
+     * @return The bitmask of the enum options, where bit i stands for the option with ordinal i.
+     */
+    public long mask() {
+        return mask;
+    }
+
+    /**
+     * Returns an iterator over the options that this Resolvable can resolve to, enum options first in ordinal order.
      * @return An iterator over the options that this Resolvable can resolve to.
      */
     public Iterator<T> options() {
-        return options.iterator();
+        return types().iterator();
     }
 
     /**
@@ -65,7 +131,8 @@ public class Resolvable<T extends AttributeType> {
      * @return This Resolvable.
      */
     public Resolvable<T> addOptions(Set<T> options) {
-        this.options.addAll(options);
+        for (T option : options)
+            add(option);
         return this;
     }
 
@@ -76,7 +143,7 @@ public class Resolvable<T extends AttributeType> {
      * @return This Resolvable.
      */
     public Resolvable<T> addOption(T option) {
-        this.options.add(option);
+        add(option);
         return this;
     }
 
@@ -98,7 +165,7 @@ public class Resolvable<T extends AttributeType> {
      * @return Whether this Resolvable is empty.
      */
     public boolean isEmpty() {
-        return options.isEmpty();
+        return mask == 0 && others == null;
     }
 
     /**
@@ -123,12 +190,17 @@ public class Resolvable<T extends AttributeType> {
     }
 
     /**
-     * Returns the options that this Resolvable can resolve to.
+     * Returns the options that this Resolvable can resolve to, enum options first in ordinal order.
      *
      * @return The options that this Resolvable can resolve to.
      */
     public List<T> types() {
-        return options;
+        List<T> types = new ArrayList<>(Long.bitCount(mask) + (others == null ? 0 : others.size()));
+        for (long bits = mask; bits != 0; bits &= bits - 1)
+            types.add(universe[Long.numberOfTrailingZeros(bits)]);
+        if (others != null)
+            types.addAll(others);
+        return types;
     }
 
     /**
@@ -149,7 +221,7 @@ public class Resolvable<T extends AttributeType> {
      */
     public Resolvable<T> addIf(T option, boolean condition) {
         if (condition)
-            options.add(option);
+            add(option);
         return this;
     }
 
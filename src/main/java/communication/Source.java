@@ -1,6 +1,8 @@
 package communication;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 /**
  * An interface for the source of an attribute.
@@ -30,4 +32,20 @@ public interface Source<T extends AttributeType> {
      * @return The type of the best attribute from the given options.
      */
     T type(Iterator<T> options);
+
+    /**
+     * Return the best attribute from the options in the given bitmask, where bit i stands for the constant with
+     * ordinal i of the given enum universe. By default the options are listed and compared as an iterator;
+     * sources over enum types override this to compare the options without allocating.
+     *
+     * @param mask The bitmask of the options to choose from.
+     * @param universe The constants of the options' enum, in ordinal order.
+     * @return The best attribute from the given options.
+     */
+    default Attribute<T> resolve(long mask, T[] universe) {
+        List<T> options = new ArrayList<>(Long.bitCount(mask));
+        for (long bits = mask; bits != 0; bits &= bits - 1)
+            options.add(universe[Long.numberOfTrailingZeros(bits)]);
+        return resolve(options.iterator());
+    }
 }
@@ -1,8 +1,6 @@
 package game;
 
 import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.List;
 
 /**
  * Coin class represents a coin in the game. It has a value and a type.
@@ -58,29 +56,12 @@ public class Coin {
         private static HashMap<Type, Coin> flyweight = new HashMap<>();
 
         /**
-         * Creates a list of coins that represent the change for a given total.
+         * Creates the coins that represent the change for a given total, counted per type by division.
          * @param total The total amount of money to be converted to change.
-         * @return A list of coins that represent the change for the given total.
+         * @return The coins that represent the change for the given total.
          */
         public static CoinComposite change(int total) {
-            List<Coin> result = new LinkedList<>();
-            int current = total;
-            while (current != 0) {
-                Type target;
-                if (current >= PLATINUM_VALUE)
-                    target = Type.PLATINUM;
-                else if (current >= GOLD_VALUE)
-                    target = Type.GOLD;
-                else if (current >= ELECTRUM_VALUE && electrum)
-                    target = Type.ELECTRUM;
-                else if (current >= SILVER_VALUE)
-                    target = Type.SILVER;
-                else
-                    target = Type.COPPER;
-                result.add(create(target));
-                current -= target.value;
-            }
-            return CoinComposite.of(result);
+            return CoinComposite.change(total);
         }
 
         /**
@@ -105,12 +86,33 @@ public class Coin {
         PLATINUM(PLATINUM_VALUE), GOLD(GOLD_VALUE), ELECTRUM(ELECTRUM_VALUE),
         SILVER(SILVER_VALUE), COPPER(COPPER_VALUE);
 
-        private int value;
+        private final int value;
 
         Type(int value) {
             this.value = value;
         }
 
+        public int getValue() {
+            return value;
+        }
+
+        /**
+         * Returns the type of coin with the given value.
+         * @param value The value of the coin in copper pieces.
+         * @return The type of coin with the value.
+         * @throws IllegalArgumentException if no type of coin has the value.
+         */
+        public static Type of(int value) {
+            return switch (value) {
+                case PLATINUM_VALUE -> PLATINUM;
+                case GOLD_VALUE -> GOLD;
+                case ELECTRUM_VALUE -> ELECTRUM;
+                case SILVER_VALUE -> SILVER;
+                case COPPER_VALUE -> COPPER;
+                default -> throw new IllegalArgumentException("No coin is worth " + value);
+            };
+        }
+
         public static int convert(int num, Type type1, Type type2) {
             return (num * type1.value) / type2.value;
         }
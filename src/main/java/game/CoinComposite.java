@@ -1,20 +1,35 @@
 package game;
 
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * A composite class that represents a collection of coins.
+ * The coins are kept as a count per Coin.Type alongside their running total, so adding, spending and converting
+ * coins takes the same few steps no matter how many coins the purse holds.
  */
 public class CoinComposite {
-    private final List<Coin> coins;
+    private static final Coin.Type[] TYPES = Coin.Type.values();
+    // The number of coins of each type, indexed by Coin.Type ordinal
+    private final int[] counts = new int[TYPES.length];
+    // The total value of the coins in copper pieces
     private int total;
+    // Whether change is made with electrum coins, fixed when the composite is made
+    private final boolean electrum;
 
     /**
-     * Default constructor.
+     * Default constructor, following the global electrum policy at the time of construction.
      */
     public CoinComposite() {
-        coins = new LinkedList<>();
+        this(Coin.electrum);
+    }
+
+    /**
+     * Constructs an empty composite that makes change following the given electrum policy.
+     * @param electrum whether electrum coins may be used when making change
+     */
+    private CoinComposite(boolean electrum) {
+        this.electrum = electrum;
     }
 
     /**
@@ -23,8 +38,59 @@ public class CoinComposite {
      * @param coins the list of coins
      */
     public CoinComposite(List<Coin> coins) {
-        this.coins = coins;
-        total = calculateTotal();
+        this();
+        addAll(coins);
+    }
+
+    /**
+     * Makes change for the given total with the fewest coins, one division per coin type.
+     * Electrum is skipped when the table does not use it.
+     * @param total the total value in copper pieces
+     * @return the composite holding the change
+     * @throws IllegalArgumentException if the total is negative
+     */
+    public static CoinComposite change(int total) {
+        return change(total, Coin.electrum);
+    }
+
+    /**
+     * Makes change for the given total with the fewest coins, following the given electrum policy
+     * rather than the global one. Spending and converting keep following the policy afterwards.
+     * @param total the total value in copper pieces
+     * @param electrum whether electrum coins may be used
+     * @return the composite holding the change
+     * @throws IllegalArgumentException if the total is negative
+     */
+    public static CoinComposite change(int total, boolean electrum) {
+        CoinComposite change = new CoinComposite(electrum);
+        change.makeChange(total);
+        return change;
+    }
+
+    /**
+     * Adds the fewest coins worth the given value to the counts, following the electrum policy of the composite.
+     * @param value the value in copper pieces
+     */
+    private void makeChange(int value) {
+        if (value < 0)
+            throw new IllegalArgumentException("Cannot make change for a negative value: " + value);
+        total += value;
+        for (Coin.Type type : TYPES) {
+            if (type == Coin.Type.ELECTRUM && !electrum)
+                continue;
+            counts[type.ordinal()] += value / type.getValue();
+            value %= type.getValue();
+        }
+    }
+
+    /**
+     * Recomputes the running total from the counts.
+     */
+    private void recount() {
+        int sum = 0;
+        for (Coin.Type type : TYPES)
+            sum += counts[type.ordinal()] * type.getValue();
+        total = sum;
     }
 
     /**
@@ -32,8 +98,34 @@ public class CoinComposite {
      * @param coin the coin to add
      */
     public void add(Coin coin) {
-        coins.add(coin);
-        total += coin.getValue();
+        add(Coin.Type.of(coin.getValue()), 1);
+    }
+
+    /**
+     * Adds the given number of coins of a type to the composite.
+     * @param type the type of the coins
+     * @param count the number of coins
+     * @return this composite
+     * @throws IllegalArgumentException if the count is negative
+     */
+    public CoinComposite add(Coin.Type type, int count) {
+        if (count < 0)
+            throw new IllegalArgumentException("Cannot add a negative number of coins: " + count);
+        counts[type.ordinal()] += count;
+        total += count * type.getValue();
+        return this;
+    }
+
+    /**
+     * Adds every coin of another composite to this one.
+     * @param other the composite to add
+     * @return this composite
+     */
+    public CoinComposite add(CoinComposite other) {
+        for (int i = 0; i < counts.length; i++)
+            counts[i] += other.counts[i];
+        total += other.total;
+        return this;
     }
 
     /**
@@ -41,40 +133,109 @@ public class CoinComposite {
      * @param coins the list of coins to add
      */
     public void addAll(List<Coin> coins) {
-        this.coins.addAll(coins);
-        total += calculateTotal();
+        for (Coin coin : coins)
+            add(coin);
     }
 
     /**
-     * Removes a coin from the composite.
+     * Removes a coin from the composite, if it holds one of its type.
      * @param coin the coin to remove
      */
     public void remove(Coin coin) {
-        coins.remove(coin);
-        total -= coin.getValue();
+        Coin.Type type = Coin.Type.of(coin.getValue());
+        if (counts[type.ordinal()] > 0)
+            remove(type, 1);
     }
 
     /**
-     * Removes a list of coins from the composite.
+     * Removes the given number of coins of a type from the composite.
+     * @param type the type of the coins
+     * @param count the number of coins
+     * @return this composite
+     * @throws IllegalArgumentException if the count is negative
+     * @throws IllegalStateException if the composite does not hold that many coins of the type
+     */
+    public CoinComposite remove(Coin.Type type, int count) {
+        if (count < 0)
+            throw new IllegalArgumentException("Cannot remove a negative number of coins: " + count);
+        if (counts[type.ordinal()] < count)
+            throw new IllegalStateException("Only " + counts[type.ordinal()] + " " + type + " coins to remove "
+                    + count + " from");
+        counts[type.ordinal()] -= count;
+        total -= count * type.getValue();
+        return this;
+    }
+
+    /**
+     * Removes every coin of the types in the list from the composite.
      * @param coins the list of coins to remove
      */
     public void removeAll(List<Coin> coins) {
-        this.coins.removeAll(coins);
-        total = calculateTotal();
+        for (Coin coin : coins)
+            counts[Coin.Type.of(coin.getValue()).ordinal()] = 0;
+        recount();
+    }
+
+    /**
+     * Spends the given value from the composite. The remaining value is held in the fewest coins afterwards,
+     * as if the coins were handed over and the change given back.
+     * @param value the value to spend in copper pieces
+     * @return this composite
+     * @throws IllegalArgumentException if the value is negative
+     * @throws IllegalStateException if the composite is not worth the value
+     */
+    public CoinComposite spend(int value) {
+        if (value < 0)
+            throw new IllegalArgumentException("Cannot spend a negative value: " + value);
+        if (value > total)
+            throw new IllegalStateException("Cannot spend " + value + " from a total of " + total);
+        int rest = total - value;
+        Arrays.fill(counts, 0);
+        total = 0;
+        makeChange(rest);
+        return this;
+    }
+
+    /**
+     * Exchanges every coin of one type for as many coins of another as they are worth.
+     * Whatever does not divide evenly is made into the fewest smaller coins.
+     * ex.: 23 silver to gold -> 2 gold and 3 silver
+     * @param from the type of the coins to exchange
+     * @param to the type of the coins to receive
+     * @return this composite
+     */
+    public CoinComposite convert(Coin.Type from, Coin.Type to) {
+        int count = counts[from.ordinal()];
+        counts[from.ordinal()] = 0;
+        total -= count * from.getValue();
+        add(to, Coin.Type.convert(count, from, to));
+        makeChange(Coin.Type.remainder(count, from, to));
+        return this;
+    }
+
+    /**
+     * Returns the number of coins of the given type.
+     * @param type the type of the coins
+     * @return the number of coins of the type
+     */
+    public int count(Coin.Type type) {
+        return counts[type.ordinal()];
     }
 
     /**
-     * Calculates the total value of the coins in the composite.
-     * @return the total value
-     * TODO: WHY DID I MAKE IT LIKE THIS?? Could be made more efficient with the @see #total class variable
+     * Returns the number of coins in the composite.
+     * @return the number of coins
      */
-    private int calculateTotal() {
-        return coins.stream().mapToInt(Coin::getValue).sum();
+    public int size() {
+        int size = 0;
+        for (int count : counts)
+            size += count;
+        return size;
     }
 
     /**
-     * Returns the list of coins in the composite.
-     * @return the list of coins
+     * Returns the total value of the coins in the composite.
+     * @return the total value in copper pieces
      */
     public int getValue() {
         return total;
@@ -86,9 +247,10 @@ public class CoinComposite {
      */
     @Override
     public String toString() {
-        return "CoinComposite{" +
-                "coins=" + coins +
-                '}';
+        StringBuilder sb = new StringBuilder("CoinComposite{");
+        for (Coin.Type type : TYPES)
+            sb.append(type).append('=').append(counts[type.ordinal()]).append(", ");
+        return sb.append("total=").append(total).append('}').toString();
     }
 
     public static CoinComposite of(List<Coin> coins) {
@@ -0,0 +1,46 @@
+package game;
+
+import game.items.BaseWeapon;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class CoinTests {
+    @Test
+    public void testCoinPurse() {
+        CoinComposite change = Coin.Factory.change(1234567);
+        Assertions.assertEquals(1234, change.count(Coin.Type.PLATINUM));
+        Assertions.assertEquals(5, change.count(Coin.Type.GOLD));
+        Assertions.assertEquals(1, change.count(Coin.Type.ELECTRUM));
+        Assertions.assertEquals(1, change.count(Coin.Type.SILVER));
+        Assertions.assertEquals(7, change.count(Coin.Type.COPPER));
+        Assertions.assertEquals(1234567, change.getValue());
+        Assertions.assertEquals(200, BaseWeapon.Factory.create("Dagger").getCost().getValue());
+
+        CoinComposite purse = new CoinComposite(List.of(Coin.Factory.create(Coin.Type.GOLD),
+                Coin.Factory.create(Coin.Type.SILVER)));
+        purse.addAll(List.of(Coin.Factory.create(Coin.Type.GOLD)));
+        Assertions.assertEquals(210, purse.getValue());
+        purse.add(Coin.Type.SILVER, 22).convert(Coin.Type.SILVER, Coin.Type.GOLD);
+        Assertions.assertEquals(4, purse.count(Coin.Type.GOLD));
+        Assertions.assertEquals(3, purse.count(Coin.Type.SILVER));
+        Assertions.assertEquals(430, purse.getValue());
+        purse.spend(125);
+        Assertions.assertEquals(305, purse.getValue());
+        Assertions.assertEquals(3, purse.count(Coin.Type.GOLD));
+        Assertions.assertEquals(8, purse.size());
+        Assertions.assertThrows(IllegalStateException.class, () -> purse.spend(1000));
+        Assertions.assertThrows(IllegalStateException.class, () -> purse.remove(Coin.Type.PLATINUM, 1));
+
+        // A purse made without electrum keeps making change without it
+        CoinComposite heathen = CoinComposite.change(1000, false).spend(450);
+        Assertions.assertEquals(550, heathen.getValue());
+        Assertions.assertEquals(0, heathen.count(Coin.Type.ELECTRUM));
+        Assertions.assertEquals(5, heathen.count(Coin.Type.GOLD));
+        Assertions.assertEquals(5, heathen.count(Coin.Type.SILVER));
+        heathen.add(Coin.Type.SILVER, 5).convert(Coin.Type.SILVER, Coin.Type.GOLD);
+        Assertions.assertEquals(0, heathen.count(Coin.Type.ELECTRUM));
+        Assertions.assertEquals(6, heathen.count(Coin.Type.GOLD));
+    }
+}
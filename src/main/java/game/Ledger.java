@@ -0,0 +1,287 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A ledger of the balances of characters in copper pieces, shared by every channel of a session.
+ * Balances are atomic counters changed with compare-and-set, so concurrent trades never take a lock and never
+ * lose or create coins. Every change is appended to a log that can be audited and replayed.
+ * A transfer takes the coins from the payer before giving them to the payee, so another thread may briefly see
+ * them in neither balance, but never in both.
+ * The sequence number of a change is taken after its coins leave the payer and before they reach the payee,
+ * so a change is always logged after every change that funded it: applying the log in sequence order never
+ * overdraws a balance.
+ * Each ledger carries its own electrum policy instead of the global one in Coin.
+ */
+public final class Ledger {
+    private final ConcurrentHashMap<String, AtomicLong> balances = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Entry> log = new ConcurrentLinkedQueue<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final boolean electrum;
+
+    /**
+     * Constructs an empty ledger that follows the current global electrum policy.
+     */
+    public Ledger() {
+        this(Coin.electrum);
+    }
+
+    /**
+     * Constructs an empty ledger with the given electrum policy.
+     * @param electrum whether purses made from this ledger may hold electrum
+     */
+    public Ledger(boolean electrum) {
+        this.electrum = electrum;
+    }
+
+    /**
+     * Rebuilds a ledger by applying the entries of a log in sequence order.
+     * The entries are applied without checking balances, since they already succeeded once.
+     * @param entries the entries of the log
+     * @param electrum the electrum policy of the rebuilt ledger
+     * @return the rebuilt ledger, whose log holds the same entries
+     */
+    public static Ledger replay(List<Entry> entries, boolean electrum) {
+        Ledger ledger = new Ledger(electrum);
+        Entry[] ordered = entries.toArray(new Entry[0]);
+        Arrays.sort(ordered, Comparator.comparingLong(Entry::getSequence));
+        for (Entry entry : ordered) {
+            if (entry.from != null)
+                ledger.account(entry.from).addAndGet(-entry.getTotal());
+            for (String name : entry.to)
+                ledger.account(name).addAndGet(entry.amount);
+            ledger.log.add(entry);
+        }
+        ledger.sequence.set(ordered.length == 0 ? 0 : ordered[ordered.length - 1].sequence + 1);
+        return ledger;
+    }
+
+    private AtomicLong account(String name) {
+        return balances.computeIfAbsent(name, key -> new AtomicLong());
+    }
+
+    private static void checkAmount(long amount) {
+        if (amount < 0)
+            throw new IllegalArgumentException("Amount cannot be negative: " + amount);
+    }
+
+    /**
+     * Takes the next sequence number. Called once the payer's coins are taken and before the payees' are given.
+     * @return the sequence number of the change
+     */
+    private long next() {
+        return sequence.getAndIncrement();
+    }
+
+    /**
+     * Takes the amount from the balance if it covers it, retrying when another thread changed it first.
+     * @param balance the balance to take from
+     * @param amount the amount to take
+     * @return true if the amount was taken
+     */
+    private static boolean take(AtomicLong balance, long amount) {
+        long current;
+        do {
+            current = balance.get();
+            if (current < amount)
+                return false;
+        } while (!balance.compareAndSet(current, current - amount));
+        return true;
+    }
+
+    /**
+     * Returns whether purses made from this ledger may hold electrum.
+     * @return the electrum policy of the ledger
+     */
+    public boolean usesElectrum() {
+        return electrum;
+    }
+
+    /**
+     * Returns the balance of a character.
+     * @param name the name of the character
+     * @return the balance in copper pieces, 0 for a character without an account
+     */
+    public long balance(String name) {
+        AtomicLong balance = balances.get(name);
+        return balance == null ? 0 : balance.get();
+    }
+
+    /**
+     * Returns the balance of a character as the fewest coins, following the ledger's electrum policy.
+     * @param name the name of the character
+     * @return the purse of the character
+     * @throws ArithmeticException if the balance is too large for a purse
+     */
+    public CoinComposite purse(String name) {
+        return CoinComposite.change(Math.toIntExact(balance(name)), electrum);
+    }
+
+    /**
+     * Adds coins to the balance of a character, such as loot or a reward.
+     * @param name the name of the character
+     * @param amount the amount in copper pieces
+     */
+    public void deposit(String name, long amount) {
+        checkAmount(amount);
+        long sequence = next();
+        account(name).addAndGet(amount);
+        log.add(new Entry(sequence, Kind.DEPOSIT, null, List.of(name), amount));
+    }
+
+    /**
+     * Removes coins from the balance of a character, such as a purchase from a shop.
+     * @param name the name of the character
+     * @param amount the amount in copper pieces
+     * @return true if the balance covered the amount, false if nothing changed
+     */
+    public boolean withdraw(String name, long amount) {
+        checkAmount(amount);
+        if (!take(account(name), amount))
+            return false;
+        log.add(new Entry(next(), Kind.WITHDRAW, name, List.of(), amount));
+        return true;
+    }
+
+    /**
+     * Moves coins from one character to another.
+     * @param from the name of the paying character
+     * @param to the name of the paid character
+     * @param amount the amount in copper pieces
+     * @return true if the payer covered the amount, false if nothing changed
+     */
+    public boolean transfer(String from, String to, long amount) {
+        checkAmount(amount);
+        if (!take(account(from), amount))
+            return false;
+        long sequence = next();
+        account(to).addAndGet(amount);
+        log.add(new Entry(sequence, Kind.TRANSFER, from, List.of(to), amount));
+        return true;
+    }
+
+    /**
+     * Splits coins evenly between several characters in one step, such as dividing loot from a shared pot.
+     * Whatever does not divide evenly stays with the payer. The split is logged as a single entry listing
+     * every payee with the share each receives.
+     * @param from the name of the paying character
+     * @param amount the amount to split in copper pieces
+     * @param to the names of the paid characters
+     * @return true if the payer covered the split, false if nothing changed
+     */
+    public boolean split(String from, long amount, String... to) {
+        checkAmount(amount);
+        if (to.length == 0)
+            throw new IllegalArgumentException("Cannot split between no one");
+        long share = amount / to.length;
+        if (!take(account(from), share * to.length))
+            return false;
+        long sequence = next();
+        for (String name : to)
+            account(name).addAndGet(share);
+        log.add(new Entry(sequence, Kind.SPLIT, from, List.of(to), share));
+        return true;
+    }
+
+    /**
+     * Returns a snapshot of the log in sequence order.
+     * @return the entries of the log
+     */
+    public List<Entry> log() {
+        List<Entry> entries = new ArrayList<>(log);
+        entries.sort(Comparator.comparingLong(Entry::getSequence));
+        return entries;
+    }
+
+    /**
+     * The kinds of change recorded in the log.
+     */
+    public enum Kind {
+        DEPOSIT, WITHDRAW, TRANSFER, SPLIT
+    }
+
+    /**
+     * An immutable entry of the log: an amount moved from one account to each of its payees.
+     * Deposits have no payer, withdrawals have no payee, and splits have several payees.
+     */
+    public static final class Entry {
+        private final long sequence;
+        private final Kind kind;
+        private final String from;
+        private final List<String> to;
+        private final long amount;
+
+        public Entry(long sequence, Kind kind, String from, List<String> to, long amount) {
+            this.sequence = sequence;
+            this.kind = kind;
+            this.from = from;
+            this.to = List.copyOf(to);
+            this.amount = amount;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public String getFrom() {
+            return from;
+        }
+
+        /**
+         * Returns the payee of the entry.
+         * @return the only payee, or null if the entry has none or several
+         */
+        public String getTo() {
+            return to.size() == 1 ? to.get(0) : null;
+        }
+
+        /**
+         * Returns every payee of the entry, each receiving the amount.
+         * @return the payees of the entry
+         */
+        public List<String> getPayees() {
+            return to;
+        }
+
+        /**
+         * Returns the amount each payee receives, or the amount withdrawn when there is no payee.
+         * @return the amount in copper pieces
+         */
+        public long getAmount() {
+            return amount;
+        }
+
+        /**
+         * Returns the amount the payer loses: the amount once per payee, or once for a withdrawal.
+         * @return the total in copper pieces
+         */
+        public long getTotal() {
+            return amount * Math.max(1, to.size());
+        }
+
+        /**
+         * Returns the JSON representation of the entry.
+         * @return the JSON representation of the entry
+         */
+        @Override
+        public String toString() {
+            return "Entry{" +
+                    "sequence=" + sequence +
+                    ", kind=" + kind +
+                    ", from=" + from +
+                    ", to=" + to +
+                    ", amount=" + amount +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package game;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class LedgerTests {
+    @Test
+    public void testLedger() throws InterruptedException {
+        Ledger ledger = new Ledger(false);
+        ledger.deposit("Party", 1000);
+        Assertions.assertTrue(ledger.split("Party", 1000, "Ana", "Bo", "Cy"));
+        Assertions.assertEquals(2, ledger.log().size());
+        Assertions.assertEquals(List.of("Ana", "Bo", "Cy"), ledger.log().get(1).getPayees());
+        Assertions.assertEquals(333, ledger.balance("Bo"));
+        Assertions.assertEquals(1, ledger.balance("Party"));
+        Assertions.assertFalse(ledger.withdraw("Ana", 334));
+        Assertions.assertFalse(ledger.transfer("Dee", "Ana", 1));
+        Assertions.assertEquals(0, ledger.purse("Cy").count(Coin.Type.ELECTRUM));
+        Assertions.assertEquals(3, ledger.purse("Cy").count(Coin.Type.SILVER));
+
+        // Concurrent trades in a circle keep the total and never overdraw
+        Thread[] threads = new Thread[3];
+        String[] names = {"Ana", "Bo", "Cy"};
+        for (int t = 0; t < threads.length; t++) {
+            String from = names[t], to = names[(t + 1) % names.length];
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10000; i++)
+                    ledger.transfer(from, to, 7);
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        long total = 0;
+        for (String name : names) {
+            Assertions.assertTrue(ledger.balance(name) >= 0);
+            total += ledger.balance(name);
+        }
+        Assertions.assertEquals(999, total);
+
+        // Applying the log in sequence order never overdraws, so no change is logged before what funded it
+        Map<String, Long> balances = new HashMap<>();
+        for (Ledger.Entry entry : ledger.log()) {
+            if (entry.getFrom() != null)
+                Assertions.assertTrue(balances.merge(entry.getFrom(), -entry.getTotal(), Long::sum) >= 0);
+            for (String name : entry.getPayees())
+                balances.merge(name, entry.getAmount(), Long::sum);
+        }
+
+        Ledger replayed = Ledger.replay(ledger.log(), true);
+        for (String name : names)
+            Assertions.assertEquals(ledger.balance(name), replayed.balance(name));
+        Assertions.assertEquals(1, replayed.balance("Party"));
+        Assertions.assertEquals(ledger.log().size(), replayed.log().size());
+    }
+}
@@ -81,6 +81,26 @@ public class AbilityContour implements Source<Ability.Type> {
         return provide(result);
     }
 
+    /**
+     * Resolves a choice between the abilities in the bitmask without allocating.
+     * @param mask The bitmask of the options, where bit i stands for the ability with ordinal i.
+     * @return The highest Ability, the first in ordinal order when tied.
+     */
+    public Ability resolve(long mask) {
+        return provide(type(mask));
+    }
+
+    /**
+     * Resolves a choice between the abilities in the bitmask by scanning its bits.
+     * @param mask The bitmask of the options, where bit i stands for the ability with ordinal i.
+     * @param universe The ability types in ordinal order.
+     * @return The highest Ability, the first in ordinal order when tied.
+     */
+    @Override
+    public Ability resolve(long mask, Ability.Type[] universe) {
+        return resolve(mask);
+    }
+
     /**
      * Provides an ability of the given type.
      * @param type The type of attribute to provide.
@@ -100,4 +120,23 @@ public class AbilityContour implements Source<Ability.Type> {
     public Ability.Type type(Iterator<Ability.Type> options) {
         return resolve(options).type();
     }
+
+    /**
+     * Gets the type of the highest ability in the bitmask by scanning its set bits.
+     * @param mask The bitmask of the options, where bit i stands for the ability with ordinal i.
+     * @return The type of the highest ability, the first in ordinal order when tied.
+     * @throws IllegalArgumentException if the bitmask is empty or has bits beyond the abilities.
+     */
+    public Ability.Type type(long mask) {
+        if (mask == 0 || mask >>> abilities.length != 0)
+            throw new IllegalArgumentException("Not a bitmask of abilities: " + Long.toBinaryString(mask));
+        int result = Long.numberOfTrailingZeros(mask);
+        for (long bits = mask & mask - 1; bits != 0; bits &= bits - 1) {
+            int next = Long.numberOfTrailingZeros(bits);
+            if (abilities[next].score() > abilities[result].score()) {
+                result = next;
+            }
+        }
+        return abilities[result].type();
+    }
 }
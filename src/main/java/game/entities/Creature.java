@@ -1,31 +1,44 @@
 package game.entities;
 
+import game.items.Inventory;
 import game.items.Weapon;
 import game.play.ClassFeatureComposite;
 import mechanics.Proficiency;
 import mechanics.RollMode;
 import mechanics.actions.*;
+import mechanics.dice.Damage;
+import mechanics.dice.DamagePacket;
+import mechanics.dice.RandomSource;
 import communication.Source;
 
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.PriorityQueue;
 
 /**
  * A creature is an entity that can be interacted with in the game. It has abilities, skills, and
  * proficiencies that can be used to determine the outcome of actions.
+ * Its state lives in a row of a CreatureStore; the creature itself only caches values derived from that row.
+ * @see CreatureStore
  */
 public class Creature extends Entity implements Source<Skill> {
-    private String name;
-    private AbilityContour abilities;
-    private int proficiencyBonus = 2;
-    private final HashMap<Skill, Proficiency> skills = new HashMap<>();
-    private final HashMap<Ability.Type, Proficiency> saves = new HashMap<>();
-    private final HashMap<Weapon.Group, Proficiency> weapons = new HashMap<>();
-    private int ac;
+    // Per-thread buffer of damage by type, so applying damage does not allocate
+    private static final ThreadLocal<int[]> scratch = ThreadLocal.withInitial(() -> new int[DamagePacket.TYPES]);
+    private static final Skill[] SKILLS = Skill.values();
+    private static final Ability.Type[] ABILITIES = Ability.Type.values();
+    private static final Weapon.Group[] GROUPS = Weapon.Group.values();
+    // The row of the store holding the state of the creature
+    private final CreatureStore store;
+    private final int handle;
+    // Derived values of the current revision, including the abilities and attack profiles,
+    // rebuilt on the first read after a change
+    private volatile Derived derived;
     private PriorityQueue<ClassFeatureComposite> features;
-    private int speed;
     private float currentSpeed;
+    // The items the creature carries, allocated on first use
+    private Inventory inventory;
 
     /**
      * Constructs a creature with the given abilities, armor class, and name.
@@ -35,30 +48,363 @@ public class Creature extends Entity implements Source<Skill> {
      * TODO: There will be MUCH more to be held within a creature in the future, requiring a Builder class
      */
     public Creature(AbilityContour abilities, int ac, String name) {
-        this.abilities = abilities;
-        this.ac = ac;
-        this.name = name;
+        this.store = new CreatureStore(1);
+        this.handle = store.add(abilities, ac, name);
+        this.derived = new Derived(store, handle, store.revision(handle), abilities);
+        store.attach(this, handle);
+    }
+
+    /**
+     * Constructs a view over a row of a store. Only the store builds views, so that each row has one.
+     * @param store the store holding the creature
+     * @param handle the handle of the creature in the store
+     */
+    Creature(CreatureStore store, int handle) {
+        this.store = store;
+        this.handle = handle;
     }
 
     // Getters
+    public CreatureStore store() {
+        return store;
+    }
+
+    public int handle() {
+        return handle;
+    }
+
     public String getName() {
-        return name;
+        return store.name(handle);
     }
 
+    /**
+     * Returns the abilities of the creature, rebuilt from the store only after they change.
+     * @return the abilities of the creature
+     */
     public AbilityContour abilities() {
-        return abilities;
+        return derived().abilities;
     }
 
     public int getArmorClass() {
-        return ac;
+        return store.armorClass(handle);
+    }
+
+    public int getHitPoints() {
+        return store.hitPoints(handle);
+    }
+
+    public int getMaxHitPoints() {
+        return store.maxHitPoints(handle);
+    }
+
+    /**
+     * Sets the maximum hit points of the creature and restores it to full health.
+     * @param hitPoints the maximum hit points
+     * @return the creature with the given hit points
+     */
+    public Creature withHitPoints(int hitPoints) {
+        store.setHitPoints(handle, hitPoints);
+        return this;
+    }
+
+    /**
+     * Removes the given damage from the creature's hit points, stopping at 0.
+     * @param damage the damage to take
+     * @return the hit points actually lost
+     */
+    public int takeDamage(int damage) {
+        return store.takeDamage(handle, damage);
+    }
+
+    /**
+     * Rolls every component of the damage packet and applies it in one call, after resistances,
+     * vulnerabilities and immunities.
+     * @param packet the damage of the hit
+     * @param critical whether the hit is critical
+     * @param rng the source of randomness
+     * @return the hit points actually lost
+     */
+    public int applyDamage(DamagePacket packet, boolean critical, RandomSource rng) {
+        if ((packet.types() & modifiedTypes()) == 0)
+            return takeDamage(packet.roll(rng, critical));
+        int[] amounts = scratch.get();
+        int total = packet.rollInto(rng, critical, amounts);
+        return takeDamage(resolve(amounts, packet.types(), total));
+    }
+
+    /**
+     * Rolls the damage packet once and applies it to every creature, such as for an area spell.
+     * @param packet the damage dealt to each creature
+     * @param creatures the creatures taking the damage
+     * @param rng the source of randomness
+     * @return the hit points lost across all the creatures
+     */
+    public static int applyDamage(DamagePacket packet, Creature[] creatures, RandomSource rng) {
+        int[] amounts = scratch.get();
+        int total = packet.rollInto(rng, false, amounts);
+        int types = packet.types();
+        int lost = 0;
+        for (Creature creature : creatures)
+            lost += creature.takeDamage(creature.resolve(amounts, types, total));
+        return lost;
+    }
+
+    /**
+     * Resolves the damage the creature takes from per-type amounts with bit operations:
+     * immunity zeroes the amount, resistance halves it and vulnerability then doubles it.
+     * @param amounts the damage of each type, indexed by damage type ordinal
+     * @param types the bitmask of the types present
+     * @param total the sum of the amounts
+     * @return the damage the creature takes
+     */
+    public int resolve(int[] amounts, int types, int total) {
+        if ((types & modifiedTypes()) == 0)
+            return total;
+        int resistances = store.resistances(handle);
+        int vulnerabilities = store.vulnerabilities(handle);
+        int immunities = store.immunities(handle);
+        int taken = 0;
+        for (int bits = types & ~immunities; bits != 0; bits &= bits - 1) {
+            int i = Integer.numberOfTrailingZeros(bits);
+            int amount = amounts[i] >> (resistances >>> i & 1);
+            taken += amount << (vulnerabilities >>> i & 1);
+        }
+        return taken;
+    }
+
+    // The damage types the creature takes differently from normal
+    private int modifiedTypes() {
+        return store.resistances(handle) | store.vulnerabilities(handle) | store.immunities(handle);
+    }
+
+    /**
+     * Adds a resistance to the given damage type, including its magical counterpart.
+     * @param type the damage type to resist
+     * @return the creature with the added resistance
+     */
+    public Creature addResistance(Damage.Type type) {
+        return addResistance(type, true);
+    }
+
+    /**
+     * Adds a resistance to the given damage type.
+     * @param type the damage type to resist
+     * @param includeMagical whether to also resist the magical counterpart of a physical type
+     * @return the creature with the added resistance
+     */
+    public Creature addResistance(Damage.Type type, boolean includeMagical) {
+        store.addResistances(handle, mask(type, includeMagical));
+        return this;
+    }
+
+    /**
+     * Adds a vulnerability to the given damage type, including its magical counterpart.
+     * @param type the damage type to be vulnerable to
+     * @return the creature with the added vulnerability
+     */
+    public Creature addVulnerability(Damage.Type type) {
+        return addVulnerability(type, true);
+    }
+
+    /**
+     * Adds a vulnerability to the given damage type.
+     * @param type the damage type to be vulnerable to
+     * @param includeMagical whether to also be vulnerable to the magical counterpart of a physical type
+     * @return the creature with the added vulnerability
+     */
+    public Creature addVulnerability(Damage.Type type, boolean includeMagical) {
+        store.addVulnerabilities(handle, mask(type, includeMagical));
+        return this;
+    }
+
+    /**
+     * Adds an immunity to the given damage type, including its magical counterpart.
+     * @param type the damage type to be immune to
+     * @return the creature with the added immunity
+     */
+    public Creature addImmunity(Damage.Type type) {
+        return addImmunity(type, true);
+    }
+
+    /**
+     * Adds an immunity to the given damage type.
+     * @param type the damage type to be immune to
+     * @param includeMagical whether to also be immune to the magical counterpart of a physical type
+     * @return the creature with the added immunity
+     */
+    public Creature addImmunity(Damage.Type type, boolean includeMagical) {
+        store.addImmunities(handle, mask(type, includeMagical));
+        return this;
+    }
+
+    private static int mask(Damage.Type type, boolean includeMagical) {
+        return includeMagical ? type.bit() | type.magical().bit() : type.bit();
+    }
+
+    public boolean isResistant(Damage.Type type) {
+        return (store.resistances(handle) & type.bit()) != 0;
+    }
+
+    public boolean isVulnerable(Damage.Type type) {
+        return (store.vulnerabilities(handle) & type.bit()) != 0;
+    }
+
+    public boolean isImmune(Damage.Type type) {
+        return (store.immunities(handle) & type.bit()) != 0;
     }
 
     public int getProficiencyBonus() {
-        return proficiencyBonus;
+        return store.proficiencyBonus(handle);
+    }
+
+    /**
+     * Replaces the abilities of the creature.
+     * @param abilities the new abilities
+     * @return the creature with the new abilities
+     */
+    public Creature setAbilities(AbilityContour abilities) {
+        store.setAbilities(handle, abilities);
+        derived = new Derived(store, handle, store.revision(handle), abilities);
+        return this;
+    }
+
+    /**
+     * Sets the proficiency bonus of the creature.
+     * @param proficiencyBonus the new proficiency bonus
+     * @return the creature with the new proficiency bonus
+     */
+    public Creature setProficiencyBonus(int proficiencyBonus) {
+        store.setProficiencyBonus(handle, proficiencyBonus);
+        return this;
+    }
+
+    /**
+     * Returns the packed proficiencies of the creature in skills, saves and weapon groups.
+     * @return the proficiencies of the creature
+     */
+    public ProficiencyProfile proficiencies() {
+        return store.proficiencies(handle);
+    }
+
+    /**
+     * Replaces every proficiency of the creature at once, such as when copying a stat block.
+     * @param proficiencies the new proficiencies
+     * @return the creature with the new proficiencies
+     */
+    public Creature setProficiencies(ProficiencyProfile proficiencies) {
+        store.setProficiencies(handle, proficiencies);
+        return this;
+    }
+
+    /**
+     * Returns the revision of the creature, which changes whenever its abilities or proficiencies do.
+     * @return the revision of the creature
+     */
+    public int revision() {
+        return store.revision(handle);
+    }
+
+    /**
+     * Returns the profile of the creature making the given attack, built once per revision.
+     * Safe to call from several threads; a race may build the profile twice, but only one is kept.
+     * @param attack the attack to make
+     * @return the profile of the attack
+     */
+    public AttackProfile profile(WeaponAttack attack) {
+        Map<WeaponAttack, AttackProfile> profiles = derived().profiles;
+        AttackProfile profile = profiles.get(attack);
+        if (profile == null) {
+            profile = AttackProfile.of(this, attack);
+            AttackProfile raced = profiles.putIfAbsent(attack, profile);
+            if (raced != null)
+                profile = raced;
+        }
+        return profile;
+    }
+
+    /**
+     * Returns the derived values of the current revision, rebuilding them if the creature changed since they
+     * were last built. The tables are built in full before being published through the volatile field, so
+     * threads sharing the creature never see them half-built; a race only builds an equal copy.
+     * @return the derived values of the creature
+     */
+    private Derived derived() {
+        Derived result = derived;
+        int current = store.revision(handle);
+        if (result == null || result.revision != current)
+            derived = result = new Derived(store, handle, current, store.abilities(handle));
+        return result;
+    }
+
+    /**
+     * The values derived from the abilities and proficiencies of one revision of a creature, indexed by ordinal.
+     * Immutable once built, apart from the attack profiles, which are added as attacks are first made and
+     * dropped with the rest of the revision.
+     */
+    private static final class Derived {
+        private final int revision;
+        private final AbilityContour abilities;
+        // Attack profiles by attack; attacks compare equal across different damage, so they are kept by identity
+        private final Map<WeaponAttack, AttackProfile> profiles = Collections.synchronizedMap(new IdentityHashMap<>());
+        private final int[] skillProficiencies = new int[SKILLS.length];
+        private final int[] skillBonuses = new int[SKILLS.length];
+        private final int[] passives = new int[SKILLS.length];
+        private final int[] saveProficiencies = new int[ABILITIES.length];
+        private final int[] saveBonuses = new int[ABILITIES.length];
+        private final int[] dcs = new int[ABILITIES.length];
+        private final int[] groupBonuses = new int[GROUPS.length];
+
+        private Derived(CreatureStore store, int handle, int revision, AbilityContour abilities) {
+            this.revision = revision;
+            this.abilities = abilities;
+            ProficiencyProfile proficiencies = store.proficiencies(handle);
+            int proficiencyBonus = store.proficiencyBonus(handle);
+            for (Skill skill : SKILLS) {
+                int i = skill.ordinal();
+                skillProficiencies[i] = proficiencies.bonus(skill, proficiencyBonus);
+                skillBonuses[i] = store.modifier(handle, skill.ability()) + skillProficiencies[i];
+                passives[i] = 10 + skillBonuses[i];
+            }
+            for (Ability.Type type : ABILITIES) {
+                int i = type.ordinal();
+                saveProficiencies[i] = proficiencies.bonus(type, proficiencyBonus);
+                saveBonuses[i] = store.modifier(handle, type) + saveProficiencies[i];
+                dcs[i] = 8 + store.modifier(handle, type) + proficiencyBonus;
+            }
+            for (Weapon.Group group : GROUPS)
+                groupBonuses[group.ordinal()] = proficiencies.bonus(group, proficiencyBonus);
+        }
     }
 
     public int getDC(Ability.Type type) {
-        return 8 + abilities.provide(type).modifier() + proficiencyBonus;
+        return derived().dcs[type.ordinal()];
+    }
+
+    /**
+     * Returns the total bonus of the creature to checks of the given skill.
+     * @param skill the skill to check
+     * @return the ability modifier plus the proficiency bonus for the skill
+     */
+    public int getSkillBonus(Skill skill) {
+        return derived().skillBonuses[skill.ordinal()];
+    }
+
+    /**
+     * Returns the total bonus of the creature to saves of the given ability.
+     * @param type the ability of the save
+     * @return the ability modifier plus the proficiency bonus for the save
+     */
+    public int getSaveBonus(Ability.Type type) {
+        return derived().saveBonuses[type.ordinal()];
+    }
+
+    /**
+     * Returns the passive score of the creature for the given skill.
+     * @param skill the skill to get the passive score of
+     * @return 10 plus the bonus to checks of the skill
+     */
+    public int getPassive(Skill skill) {
+        return derived().passives[skill.ordinal()];
     }
 
     /**
@@ -68,7 +414,18 @@ public class Creature extends Entity implements Source<Skill> {
      * @return the result of the roll
      */
     public int make(Roll roll, RollMode mode) {
-        return roll.rollWith(mode) + getBonus(roll);
+        return make(roll, mode, RandomSource.DEFAULT);
+    }
+
+    /**
+     * Makes a roll with the given roll, mode and source of randomness, returning the result.
+     * @param roll the roll to make
+     * @param mode the mode to make the roll in
+     * @param rng the source of randomness
+     * @return the result of the roll
+     */
+    public int make(Roll roll, RollMode mode, RandomSource rng) {
+        return roll.rollWith(mode, rng) + getBonus(roll);
     }
 
     /**
@@ -78,7 +435,18 @@ public class Creature extends Entity implements Source<Skill> {
      * @return the result of the check
      */
     public int check(Skill skill, RollMode mode) {
-        return make(new Check.Builder().with(skill).build(), mode);
+        return check(skill, mode, RandomSource.DEFAULT);
+    }
+
+    /**
+     * Makes a check with the given skill, mode and source of randomness, returning the result.
+     * @param skill the skill to check
+     * @param mode the mode to make the check in
+     * @param rng the source of randomness
+     * @return the result of the check
+     */
+    public int check(Skill skill, RollMode mode, RandomSource rng) {
+        return make(Check.Factory.create(skill), mode, rng);
     }
 
     /**
@@ -88,7 +456,7 @@ public class Creature extends Entity implements Source<Skill> {
      * @return the creature with the added skill
      */
     public Creature addSkill(Skill skill, Proficiency proficiency) {
-        skills.put(skill, proficiency);
+        store.setProficiencies(handle, store.proficiencies(handle).with(skill, proficiency));
         return this;
     }
 
@@ -99,7 +467,7 @@ public class Creature extends Entity implements Source<Skill> {
      * @return the creature with the added save
      */
     public Creature addSave(Ability.Type type, Proficiency proficiency) {
-        saves.put(type, proficiency);
+        store.setProficiencies(handle, store.proficiencies(handle).with(type, proficiency));
         return this;
     }
 
@@ -110,7 +478,7 @@ public class Creature extends Entity implements Source<Skill> {
      * @return the creature with the added weapon
      */
     public Creature addWeaponGroup(Weapon.Group group, Proficiency proficiency) {
-        weapons.put(group, proficiency);
+        store.setProficiencies(handle, store.proficiencies(handle).with(group, proficiency));
         return this;
     }
 
@@ -122,8 +490,14 @@ public class Creature extends Entity implements Source<Skill> {
     public int getBonus(Roll roll) {
         if (roll instanceof Contest)
             throw new IllegalArgumentException("Contest rolls need clarification for bonus.");
-        return abilities().resolve(roll.getAbilityOptions().iterator()).modifier() +
-                getProficiency(roll);
+        if (roll instanceof WeaponAttack attack)
+            return profile(attack).toHit();
+        // A CustomCheck swaps the skill's ability, so it cannot use the skill table
+        if (roll instanceof Check check && !(roll instanceof CustomCheck))
+            return getSkillBonus(check.getSkill());
+        if (roll instanceof Save save)
+            return getSaveBonus(save.ability());
+        return store.modifier(handle, abilities().type(roll.getAbilityMask())) + getProficiency(roll);
     }
 
     /**
@@ -132,11 +506,7 @@ public class Creature extends Entity implements Source<Skill> {
      * @return the proficiency bonus for the skill
      */
     public int getProficiency(Skill skill) {
-        Proficiency proficiency = skills.get(skill);
-        if (proficiency == null) {
-            proficiency = Proficiency.NONE;
-        }
-        return proficiency.bonus(proficiencyBonus);
+        return derived().skillProficiencies[skill.ordinal()];
     }
 
     /**
@@ -145,17 +515,14 @@ public class Creature extends Entity implements Source<Skill> {
      * @return the proficiency bonus for the roll
      */
     public int getProficiency(Roll roll) {
-        Proficiency proficiency = switch (roll.getRollType()) {
-            case CHECK -> skills.get(((Check) roll).getSkill());
-            case SAVE -> saves.get(((Save) roll).ability());
-            case ATTACK -> weapons.get(((WeaponAttack) roll).getGroup());
+        Derived derived = derived();
+        return switch (roll.getRollType()) {
+            case CHECK -> derived.skillProficiencies[((Check) roll).getSkill().ordinal()];
+            case SAVE -> derived.saveProficiencies[((Save) roll).ability().ordinal()];
+            case ATTACK -> derived.groupBonuses[((WeaponAttack) roll).getGroup().ordinal()];
             default -> throw new UnsupportedOperationException("Proficiency of roll type "
                     + roll.getRollType() + " not supported");
         };
-        if (proficiency == null) {
-            proficiency = Proficiency.NONE;
-        }
-        return proficiency.bonus(proficiencyBonus);
     }
 
     /**
@@ -165,18 +532,56 @@ public class Creature extends Entity implements Source<Skill> {
      */
     public boolean isProficient(Roll roll) {
         if (roll instanceof Check check) {
-            return skills.containsKey(check.getSkill());
+            return proficiencies().has(check.getSkill());
         } else if (roll instanceof Save save) {
-            return saves.containsKey(save.getAbilityOptions().iterator().next());
+            return proficiencies().has(save.ability());
         } else if (roll instanceof WeaponAttack attack){
-            return weapons.containsKey(attack.getGroup());
+            return proficiencies().has(attack.getGroup());
         } else {
             throw new IllegalArgumentException("Roll type: " + roll.getClass().getName() + " not supported");
         }
     }
 
     public int getSpeed() {
-        return speed;
+        return store.speed(handle);
+    }
+
+    /**
+     * Sets the walking speed of the creature.
+     * @param speed the speed in feet
+     * @return the creature with the given speed
+     */
+    public Creature withSpeed(int speed) {
+        store.setSpeed(handle, speed);
+        return this;
+    }
+
+    /**
+     * Returns the items the creature carries.
+     * @return the inventory of the creature
+     */
+    public Inventory inventory() {
+        if (inventory == null)
+            inventory = new Inventory();
+        return inventory;
+    }
+
+    /**
+     * Returns how encumbered the creature is by its inventory, from its running weight and strength score.
+     * @return the encumbrance of the creature
+     */
+    public Inventory.Encumbrance getEncumbrance() {
+        if (inventory == null)
+            return Inventory.Encumbrance.NONE;
+        return inventory.encumbrance(store.score(handle, Ability.Type.STR));
+    }
+
+    /**
+     * Returns the speed of the creature after the penalty for what it carries.
+     * @return the speed of the creature
+     */
+    public int getEncumberedSpeed() {
+        return getEncumbrance().speed(getSpeed());
     }
 
     public void addTemporarySpeed(int speed, Duration duration) {
@@ -191,19 +596,31 @@ public class Creature extends Entity implements Source<Skill> {
     /**
      * Uses Creature as a Source to resolve a decision between multiple skills
      * @param options The options to choose from.
-     * @return The resolved decision (best skill for the creature)
+     * @return The resolved decision (best skill for the creature), the first of any tied for best
      */
     @Override
     public ConcreteCheck resolve(Iterator<Skill> options) {
-        ConcreteCheck result = (new ConcreteCheck.Builder().with(options.next()).with(this)).build();
-        while (options.hasNext()) {
-            ConcreteCheck nextCheck = (new ConcreteCheck.Builder().with(options.next()).with(this))
-                    .build();
-            if (nextCheck.over(result)) {
-                result = nextCheck;
-            }
-        }
-        return result;
+        return provide(type(options));
+    }
+
+    /**
+     * Uses Creature as a Source to resolve a decision between the skills in a bitmask
+     * @param mask The bitmask of the options, where bit i stands for the skill with ordinal i.
+     * @return The resolved decision (best skill for the creature), the first in ordinal order of any tied for best
+     */
+    public ConcreteCheck resolve(long mask) {
+        return provide(type(mask));
+    }
+
+    /**
+     * Uses Creature as a Source to resolve a decision between the skills in a bitmask by scanning its bits
+     * @param mask The bitmask of the options, where bit i stands for the skill with ordinal i.
+     * @param universe The skills in ordinal order.
+     * @return The resolved decision (best skill for the creature), the first in ordinal order of any tied for best
+     */
+    @Override
+    public ConcreteCheck resolve(long mask, Skill[] universe) {
+        return resolve(mask);
     }
 
     /**
@@ -223,7 +640,35 @@ public class Creature extends Entity implements Source<Skill> {
      */
     @Override
     public Skill type(Iterator<Skill> options) {
-        return resolve(options).type();
+        int[] skillBonuses = derived().skillBonuses;
+        Skill result = options.next();
+        while (options.hasNext()) {
+            Skill next = options.next();
+            if (skillBonuses[next.ordinal()] > skillBonuses[result.ordinal()]) {
+                result = next;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the type of the best skill in the bitmask for the creature, comparing table entries only.
+     * @param mask The bitmask of the options, where bit i stands for the skill with ordinal i.
+     * @return The type of the best skill for the creature.
+     * @throws IllegalArgumentException if the bitmask is empty or has bits beyond the skills.
+     */
+    public Skill type(long mask) {
+        if (mask == 0 || mask >>> SKILLS.length != 0)
+            throw new IllegalArgumentException("Not a bitmask of skills: " + Long.toBinaryString(mask));
+        int[] skillBonuses = derived().skillBonuses;
+        int result = Long.numberOfTrailingZeros(mask);
+        for (long bits = mask & mask - 1; bits != 0; bits &= bits - 1) {
+            int next = Long.numberOfTrailingZeros(bits);
+            if (skillBonuses[next] > skillBonuses[result]) {
+                result = next;
+            }
+        }
+        return SKILLS[result];
     }
 
     /**
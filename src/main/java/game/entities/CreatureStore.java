@@ -0,0 +1,404 @@
+package game.entities;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Keeps the state of many creatures in parallel primitive arrays, one row per creature, addressed by an int handle.
+ * Ability scores, armor class, hit points, speed, proficiencies and damage modifiers of a creature are a few
+ * array slots rather than a graph of objects, so loops over thousands of creatures stay cache-friendly.
+ * A Creature is a view over one row of a store; a creature built on its own gets a store with a single row.
+ * A store is not thread-safe.
+ */
+public final class CreatureStore {
+    private static final Ability.Type[] ABILITIES = Ability.Type.values();
+    private static final int SCORES = ABILITIES.length;
+
+    private int size;
+    private String[] names;
+    // SCORES ability scores per row, in ordinal order
+    private byte[] scores;
+    private int[] armorClasses;
+    private int[] maxHitPoints;
+    private int[] hitPoints;
+    private int[] speeds;
+    private int[] proficiencyBonuses;
+    // The packed proficiencies of each row, see ProficiencyProfile
+    private long[] skills;
+    private long[] others;
+    // Bitmasks of the damage types each row resists, is vulnerable to and is immune to
+    private int[] resistances;
+    private int[] vulnerabilities;
+    private int[] immunities;
+    // Bumped whenever the abilities or proficiencies of a row change, so derived values know to rebuild
+    private int[] revisions;
+    // Views of the rows, built on first request
+    private Creature[] views;
+
+    /**
+     * Constructs an empty store with room for 16 creatures before growing.
+     */
+    public CreatureStore() {
+        this(16);
+    }
+
+    /**
+     * Constructs an empty store with room for the given number of creatures before growing.
+     * @param capacity the initial capacity of the store
+     */
+    public CreatureStore(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        names = new String[capacity];
+        scores = new byte[capacity * SCORES];
+        armorClasses = new int[capacity];
+        maxHitPoints = new int[capacity];
+        hitPoints = new int[capacity];
+        speeds = new int[capacity];
+        proficiencyBonuses = new int[capacity];
+        skills = new long[capacity];
+        others = new long[capacity];
+        resistances = new int[capacity];
+        vulnerabilities = new int[capacity];
+        immunities = new int[capacity];
+        revisions = new int[capacity];
+        views = new Creature[capacity];
+    }
+
+    /**
+     * Adds a creature to the store with a proficiency bonus of 2 and no hit points.
+     * @param abilities the abilities of the creature
+     * @param ac the armor class of the creature
+     * @param name the name of the creature
+     * @return the handle of the new creature
+     */
+    public int add(AbilityContour abilities, int ac, String name) {
+        if (size == names.length)
+            grow();
+        int handle = size++;
+        names[handle] = name;
+        armorClasses[handle] = ac;
+        proficiencyBonuses[handle] = 2;
+        writeScores(handle, abilities);
+        return handle;
+    }
+
+    /**
+     * Adds a copy of a row of this or another store, sharing nothing with it.
+     * @param source the store holding the creature to copy
+     * @param handle the handle of the creature to copy
+     * @return the handle of the copy
+     */
+    public int copy(CreatureStore source, int handle) {
+        source.check(handle);
+        if (size == names.length)
+            grow();
+        int copy = size++;
+        names[copy] = source.names[handle];
+        System.arraycopy(source.scores, handle * SCORES, scores, copy * SCORES, SCORES);
+        armorClasses[copy] = source.armorClasses[handle];
+        maxHitPoints[copy] = source.maxHitPoints[handle];
+        hitPoints[copy] = source.hitPoints[handle];
+        speeds[copy] = source.speeds[handle];
+        proficiencyBonuses[copy] = source.proficiencyBonuses[handle];
+        skills[copy] = source.skills[handle];
+        others[copy] = source.others[handle];
+        resistances[copy] = source.resistances[handle];
+        vulnerabilities[copy] = source.vulnerabilities[handle];
+        immunities[copy] = source.immunities[handle];
+        return copy;
+    }
+
+    private void grow() {
+        int capacity = names.length * 2;
+        names = Arrays.copyOf(names, capacity);
+        scores = Arrays.copyOf(scores, capacity * SCORES);
+        armorClasses = Arrays.copyOf(armorClasses, capacity);
+        maxHitPoints = Arrays.copyOf(maxHitPoints, capacity);
+        hitPoints = Arrays.copyOf(hitPoints, capacity);
+        speeds = Arrays.copyOf(speeds, capacity);
+        proficiencyBonuses = Arrays.copyOf(proficiencyBonuses, capacity);
+        skills = Arrays.copyOf(skills, capacity);
+        others = Arrays.copyOf(others, capacity);
+        resistances = Arrays.copyOf(resistances, capacity);
+        vulnerabilities = Arrays.copyOf(vulnerabilities, capacity);
+        immunities = Arrays.copyOf(immunities, capacity);
+        revisions = Arrays.copyOf(revisions, capacity);
+        views = Arrays.copyOf(views, capacity);
+    }
+
+    private void check(int handle) {
+        Objects.checkIndex(handle, size);
+    }
+
+    /**
+     * Returns the number of creatures in the store.
+     * @return the number of creatures
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the Creature view of the given row, built once and reused.
+     * @param handle the handle of the creature
+     * @return the view of the creature
+     */
+    public Creature view(int handle) {
+        check(handle);
+        Creature view = views[handle];
+        if (view == null)
+            views[handle] = view = new Creature(this, handle);
+        return view;
+    }
+
+    /**
+     * Registers the view a standalone creature was built with, so the store hands out that same view.
+     * @param view the view of the row
+     * @param handle the handle of the row
+     */
+    void attach(Creature view, int handle) {
+        views[handle] = view;
+    }
+
+    public String name(int handle) {
+        check(handle);
+        return names[handle];
+    }
+
+    public int revision(int handle) {
+        check(handle);
+        return revisions[handle];
+    }
+
+    /**
+     * Returns the score of the given ability.
+     * @param handle the handle of the creature
+     * @param type the ability
+     * @return the score of the ability
+     */
+    public int score(int handle, Ability.Type type) {
+        check(handle);
+        return scores[handle * SCORES + type.ordinal()];
+    }
+
+    /**
+     * Returns the modifier of the given ability, computed the same way as Ability does.
+     * @param handle the handle of the creature
+     * @param type the ability
+     * @return the modifier of the ability
+     */
+    public int modifier(int handle, Ability.Type type) {
+        check(handle);
+        return (scores[handle * SCORES + type.ordinal()] - 10) / 2;
+    }
+
+    /**
+     * Builds an AbilityContour from the scores of the given row.
+     * @param handle the handle of the creature
+     * @return the abilities of the creature
+     */
+    public AbilityContour abilities(int handle) {
+        check(handle);
+        int[] values = new int[SCORES];
+        for (int i = 0; i < SCORES; i++)
+            values[i] = scores[handle * SCORES + i];
+        return new AbilityContour(values);
+    }
+
+    /**
+     * Replaces the ability scores of the given row.
+     * @param handle the handle of the creature
+     * @param abilities the new abilities
+     */
+    public void setAbilities(int handle, AbilityContour abilities) {
+        check(handle);
+        writeScores(handle, abilities);
+        revisions[handle]++;
+    }
+
+    private void writeScores(int handle, AbilityContour abilities) {
+        for (Ability.Type type : ABILITIES) {
+            int score = abilities.score(type);
+            if (score < 0 || score > Byte.MAX_VALUE)
+                throw new IllegalArgumentException("Ability score out of range: " + type + " " + score);
+            scores[handle * SCORES + type.ordinal()] = (byte) score;
+        }
+    }
+
+    public int armorClass(int handle) {
+        check(handle);
+        return armorClasses[handle];
+    }
+
+    public void setArmorClass(int handle, int ac) {
+        check(handle);
+        armorClasses[handle] = ac;
+    }
+
+    public int hitPoints(int handle) {
+        check(handle);
+        return hitPoints[handle];
+    }
+
+    public int maxHitPoints(int handle) {
+        check(handle);
+        return maxHitPoints[handle];
+    }
+
+    /**
+     * Sets the maximum hit points of the given row and restores it to full health.
+     * @param handle the handle of the creature
+     * @param hitPoints the maximum hit points
+     */
+    public void setHitPoints(int handle, int hitPoints) {
+        check(handle);
+        if (hitPoints < 0)
+            throw new IllegalArgumentException("Hit points cannot be negative: " + hitPoints);
+        this.maxHitPoints[handle] = hitPoints;
+        this.hitPoints[handle] = hitPoints;
+    }
+
+    /**
+     * Removes the given damage from the hit points of the given row, stopping at 0.
+     * @param handle the handle of the creature
+     * @param damage the damage to take
+     * @return the hit points actually lost
+     */
+    public int takeDamage(int handle, int damage) {
+        check(handle);
+        int lost = Math.min(hitPoints[handle], Math.max(0, damage));
+        hitPoints[handle] -= lost;
+        return lost;
+    }
+
+    public int speed(int handle) {
+        check(handle);
+        return speeds[handle];
+    }
+
+    public void setSpeed(int handle, int speed) {
+        check(handle);
+        speeds[handle] = speed;
+    }
+
+    public int proficiencyBonus(int handle) {
+        check(handle);
+        return proficiencyBonuses[handle];
+    }
+
+    public void setProficiencyBonus(int handle, int proficiencyBonus) {
+        check(handle);
+        proficiencyBonuses[handle] = proficiencyBonus;
+        revisions[handle]++;
+    }
+
+    /**
+     * Returns the proficiencies of the given row.
+     * @param handle the handle of the creature
+     * @return the proficiencies of the creature
+     */
+    public ProficiencyProfile proficiencies(int handle) {
+        check(handle);
+        return ProficiencyProfile.of(skills[handle], others[handle]);
+    }
+
+    /**
+     * Replaces the proficiencies of the given row.
+     * @param handle the handle of the creature
+     * @param proficiencies the new proficiencies
+     */
+    public void setProficiencies(int handle, ProficiencyProfile proficiencies) {
+        check(handle);
+        skills[handle] = proficiencies.skills();
+        others[handle] = proficiencies.others();
+        revisions[handle]++;
+    }
+
+    public int resistances(int handle) {
+        check(handle);
+        return resistances[handle];
+    }
+
+    public int vulnerabilities(int handle) {
+        check(handle);
+        return vulnerabilities[handle];
+    }
+
+    public int immunities(int handle) {
+        check(handle);
+        return immunities[handle];
+    }
+
+    /**
+     * Adds the damage types of the bitmask to the resistances of the given row.
+     * @param handle the handle of the creature
+     * @param mask the bitmask of damage types
+     */
+    public void addResistances(int handle, int mask) {
+        check(handle);
+        resistances[handle] |= mask;
+    }
+
+    /**
+     * Adds the damage types of the bitmask to the vulnerabilities of the given row.
+     * @param handle the handle of the creature
+     * @param mask the bitmask of damage types
+     */
+    public void addVulnerabilities(int handle, int mask) {
+        check(handle);
+        vulnerabilities[handle] |= mask;
+    }
+
+    /**
+     * Adds the damage types of the bitmask to the immunities of the given row.
+     * @param handle the handle of the creature
+     * @param mask the bitmask of damage types
+     */
+    public void addImmunities(int handle, int mask) {
+        check(handle);
+        immunities[handle] |= mask;
+    }
+
+    /**
+     * Returns the number of creatures with hit points left.
+     * @return the number of living creatures
+     */
+    public int living() {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (hitPoints[i] > 0)
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * Writes the modifier of the given ability for every creature, in handle order.
+     * @param type the ability
+     * @param out the array to fill, at least as long as the store
+     */
+    public void modifiers(Ability.Type type, int[] out) {
+        if (out.length < size)
+            throw new IndexOutOfBoundsException("Cannot write " + size + " modifiers into an array of length "
+                    + out.length);
+        for (int i = 0, at = type.ordinal(); i < size; i++, at += SCORES)
+            out[i] = (scores[at] - 10) / 2;
+    }
+
+    /**
+     * Removes the same damage from every creature, ignoring damage types, such as for falling.
+     * @param damage the damage each creature takes
+     * @return the hit points lost across all the creatures
+     */
+    public int takeDamage(int damage) {
+        damage = Math.max(0, damage);
+        int lost = 0;
+        for (int i = 0; i < size; i++) {
+            int taken = Math.min(hitPoints[i], damage);
+            hitPoints[i] -= taken;
+            lost += taken;
+        }
+        return lost;
+    }
+}
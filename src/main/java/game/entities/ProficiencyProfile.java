@@ -0,0 +1,222 @@
+package game.entities;
+
+import game.items.Weapon;
+import mechanics.Proficiency;
+import mechanics.actions.Skill;
+
+import java.io.Serializable;
+
+/**
+ * An immutable set of proficiencies in skills, saves and weapon groups, packed 2 bits per entry into two longs.
+ * Each entry holds 0 when the creature has no entry at all, or the ordinal of its Proficiency plus one, so
+ * "listed as NONE" stays distinct from "not listed". Skills fill the first long; saves and then weapon groups
+ * fill the second.
+ * Lookups are a shift and a mask, copying is sharing, and the serialized form is the two longs.
+ */
+public final class ProficiencyProfile implements Serializable {
+    /**
+     * The profile without any proficiencies.
+     */
+    public static final ProficiencyProfile EMPTY = new ProficiencyProfile(0, 0);
+    private static final Proficiency[] LEVELS = Proficiency.values();
+    // Bit offset of the weapon groups in the second long, right after the saves
+    private static final int GROUP_OFFSET = 2 * Ability.Type.values().length;
+    // The bits that may be set in each long
+    private static final long SKILL_BITS = bits(Skill.values().length);
+    private static final long OTHER_BITS = bits(Ability.Type.values().length + Weapon.Group.values().length);
+
+    private final long skills;
+    private final long others;
+
+    private ProficiencyProfile(long skills, long others) {
+        this.skills = skills;
+        this.others = others;
+    }
+
+    /**
+     * Rebuilds a profile from its packed form.
+     * @param skills the packed skill entries
+     * @param others the packed save and weapon group entries
+     * @return the profile
+     * @throws IllegalArgumentException if a bit outside the entries is set
+     */
+    public static ProficiencyProfile of(long skills, long others) {
+        if ((skills & ~SKILL_BITS) != 0 || (others & ~OTHER_BITS) != 0)
+            throw new IllegalArgumentException("Not a packed proficiency profile: " + skills + ", " + others);
+        return skills == 0 && others == 0 ? EMPTY : new ProficiencyProfile(skills, others);
+    }
+
+    private static long bits(int entries) {
+        return entries >= 32 ? -1L : (1L << 2 * entries) - 1;
+    }
+
+    /**
+     * Returns the packed skill entries.
+     * @return the skill entries, 2 bits per skill in ordinal order
+     */
+    public long skills() {
+        return skills;
+    }
+
+    /**
+     * Returns the packed save and weapon group entries.
+     * @return the save entries followed by the weapon group entries, 2 bits each in ordinal order
+     */
+    public long others() {
+        return others;
+    }
+
+    /**
+     * Returns a copy of the profile with the given skill proficiency.
+     * @param skill the skill
+     * @param proficiency the proficiency in the skill
+     * @return the profile with the skill set
+     */
+    public ProficiencyProfile with(Skill skill, Proficiency proficiency) {
+        return new ProficiencyProfile(set(skills, 2 * skill.ordinal(), proficiency), others);
+    }
+
+    /**
+     * Returns a copy of the profile with the given save proficiency.
+     * @param type the ability of the save
+     * @param proficiency the proficiency in the save
+     * @return the profile with the save set
+     */
+    public ProficiencyProfile with(Ability.Type type, Proficiency proficiency) {
+        return new ProficiencyProfile(skills, set(others, 2 * type.ordinal(), proficiency));
+    }
+
+    /**
+     * Returns a copy of the profile with the given weapon group proficiency.
+     * @param group the weapon group
+     * @param proficiency the proficiency in the weapon group
+     * @return the profile with the weapon group set
+     */
+    public ProficiencyProfile with(Weapon.Group group, Proficiency proficiency) {
+        return new ProficiencyProfile(skills, set(others, GROUP_OFFSET + 2 * group.ordinal(), proficiency));
+    }
+
+    private static long set(long packed, int shift, Proficiency proficiency) {
+        return packed & ~(3L << shift) | (long) (proficiency.ordinal() + 1) << shift;
+    }
+
+    public boolean has(Skill skill) {
+        return code(skills, 2 * skill.ordinal()) != 0;
+    }
+
+    public boolean has(Ability.Type type) {
+        return code(others, 2 * type.ordinal()) != 0;
+    }
+
+    public boolean has(Weapon.Group group) {
+        return code(others, GROUP_OFFSET + 2 * group.ordinal()) != 0;
+    }
+
+    /**
+     * Returns the proficiency in the given skill.
+     * @param skill the skill
+     * @return the proficiency, NONE if the skill is not listed
+     */
+    public Proficiency get(Skill skill) {
+        return level(code(skills, 2 * skill.ordinal()));
+    }
+
+    /**
+     * Returns the proficiency in the given save.
+     * @param type the ability of the save
+     * @return the proficiency, NONE if the save is not listed
+     */
+    public Proficiency get(Ability.Type type) {
+        return level(code(others, 2 * type.ordinal()));
+    }
+
+    /**
+     * Returns the proficiency in the given weapon group.
+     * @param group the weapon group
+     * @return the proficiency, NONE if the weapon group is not listed
+     */
+    public Proficiency get(Weapon.Group group) {
+        return level(code(others, GROUP_OFFSET + 2 * group.ordinal()));
+    }
+
+    /**
+     * Returns the bonus to rolls of the given skill without going through the Proficiency enum.
+     * @param skill the skill
+     * @param proficiencyBonus the creature's proficiency bonus
+     * @return the bonus for the skill
+     */
+    public int bonus(Skill skill, int proficiencyBonus) {
+        return multiplier(code(skills, 2 * skill.ordinal())) * proficiencyBonus;
+    }
+
+    /**
+     * Returns the bonus to saves of the given ability without going through the Proficiency enum.
+     * @param type the ability of the save
+     * @param proficiencyBonus the creature's proficiency bonus
+     * @return the bonus for the save
+     */
+    public int bonus(Ability.Type type, int proficiencyBonus) {
+        return multiplier(code(others, 2 * type.ordinal())) * proficiencyBonus;
+    }
+
+    /**
+     * Returns the bonus to attacks with the given weapon group without going through the Proficiency enum.
+     * @param group the weapon group
+     * @param proficiencyBonus the creature's proficiency bonus
+     * @return the bonus for the weapon group
+     */
+    public int bonus(Weapon.Group group, int proficiencyBonus) {
+        return multiplier(code(others, GROUP_OFFSET + 2 * group.ordinal())) * proficiencyBonus;
+    }
+
+    private static int code(long packed, int shift) {
+        return (int) (packed >>> shift) & 3;
+    }
+
+    private static Proficiency level(int code) {
+        return code == 0 ? Proficiency.NONE : LEVELS[code - 1];
+    }
+
+    // Absent and NONE give 0, PROFICIENT 1 and EXPERTISE 2
+    private static int multiplier(int code) {
+        return code == 0 ? 0 : code - 1;
+    }
+
+    /**
+     * Returns a JSON representation of the listed proficiencies.
+     * @return a JSON representation of the profile
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("ProficiencyProfile{");
+        for (Skill skill : Skill.values())
+            if (has(skill))
+                sb.append(skill).append('=').append(get(skill)).append(", ");
+        for (Ability.Type type : Ability.Type.values())
+            if (has(type))
+                sb.append(type.name()).append('=').append(get(type)).append(", ");
+        for (Weapon.Group group : Weapon.Group.values())
+            if (has(group))
+                sb.append(group).append('=').append(get(group)).append(", ");
+        if (sb.charAt(sb.length() - 1) == ' ')
+            sb.setLength(sb.length() - 2);
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Compares the profile to another object by its packed entries.
+     * @param other the object to compare
+     * @return true if the other object is a profile with the same entries
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (other instanceof ProficiencyProfile profile)
+            return skills == profile.skills && others == profile.others;
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(skills) * 31 + Long.hashCode(others);
+    }
+}
@@ -18,6 +18,7 @@ import java.io.File;
 import java.io.IOException;
 import java.net.ProtocolException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * BaseWeapon is a class that represents a weapon in the game. It contains all the necessary
@@ -30,10 +31,30 @@ public class BaseWeapon extends Item implements Construct {
     protected static final String THROWN_ATTACK = "Thrown";
     protected static final String RANGED_ATTACK = "Ranged";
     protected static final String SAVE = "Save";
+    private static final Ability.Type[] ABILITY_TYPES = Ability.Type.values();
+    // The attack rolls that each property mask adds to a weapon, on top of its base attack
+    private static final String[][] PROPERTY_ATTACKS = new String[Weapon.Property.COMBINATIONS][];
+
+    static {
+        for (int mask = 0; mask < Weapon.Property.COMBINATIONS; mask++) {
+            List<String> attacks = new ArrayList<>(3);
+            if ((mask & Weapon.Property.RANGED.bit()) != 0)
+                attacks.add(RANGED_ATTACK);
+            if ((mask & Weapon.Property.VERSATILE.bit()) != 0)
+                attacks.add(VERSATILE_ATTACK);
+            if ((mask & Weapon.Property.THROWN.bit()) != 0)
+                attacks.add(THROWN_ATTACK);
+            PROPERTY_ATTACKS[mask] = attacks.toArray(new String[0]);
+        }
+    }
+
     protected Range range;
-    private final SortedSet<Weapon.Property> properties;
+    // The properties of the weapon, one bit per Weapon.Property ordinal
+    private int properties;
     private HashMap<String, Roll> rolls;
     private BaseWeapon.Type type;
+    // Lazily computed hash, 0 until first needed and cleared by the setters
+    private transient int hash;
 
     /**
      * Constructor for BaseWeapon. It takes a Builder object and a Range object to create a new
@@ -43,7 +64,7 @@ public class BaseWeapon extends Item implements Construct {
     protected BaseWeapon(Builder builder) {
         super(builder);
         this.range = builder.range;
-        this.properties = builder.properties;
+        this.properties = Weapon.Property.mask(builder.properties);
         this.rolls = builder.rolls;
         this.type = builder.type;
     }
@@ -74,16 +95,47 @@ public class BaseWeapon extends Item implements Construct {
     }
 
     /**
-     * Compares the BaseWeapon object to another object to determine if they are equal.
+     * Compares the BaseWeapon object to another object field by field: name ignoring case, cost, weight,
+     * properties, range, base damage and rolls. The type is ignored, so a custom weapon equals the base weapon
+     * it copies and equality stays transitive.
      * @param o Object to compare to
      * @return true if the objects are equal, false otherwise
      */
     @Override
     public boolean equals(Object o) {
-        if (o instanceof BaseWeapon baseWeapon) {
-            return toString().equalsIgnoreCase(baseWeapon.toString());
+        if (this == o)
+            return true;
+        if (!(o instanceof BaseWeapon weapon))
+            return false;
+        if (hash != 0 && weapon.hash != 0 && hash != weapon.hash)
+            return false;
+        return properties == weapon.properties
+                && getCostValue() == weapon.getCostValue()
+                && Float.compare(getWeight(), weapon.getWeight()) == 0
+                && (getName() == null ? weapon.getName() == null : getName().equalsIgnoreCase(weapon.getName()))
+                && Objects.equals(range, weapon.range)
+                && getBaseDamage().equals(weapon.getBaseDamage())
+                && Objects.equals(rolls, weapon.rolls);
+    }
+
+    /**
+     * Returns the hash of the BaseWeapon, computed once and cached until a setter changes the weapon.
+     * The rolls are left out, as they follow from the rest.
+     * @return the hash of the BaseWeapon
+     */
+    @Override
+    public int hashCode() {
+        int result = hash;
+        if (result == 0) {
+            result = getName() == null ? 0 : getName().toLowerCase(Locale.ROOT).hashCode();
+            result = 31 * result + getCostValue();
+            result = 31 * result + Float.hashCode(getWeight());
+            result = 31 * result + properties;
+            result = 31 * result + Objects.hashCode(range);
+            result = 31 * result + getBaseDamage().hashCode();
+            hash = result;
         }
-        return false;
+        return result;
     }
 
     /**
@@ -93,7 +145,7 @@ public class BaseWeapon extends Item implements Construct {
     @Override
     public String substring() {
         return super.substring() + ", range=" + range +
-                ", properties=" + properties +
+                ", properties=" + Weapon.Property.of(properties) +
                 ", rolls=" + rolls;
     }
 
@@ -110,15 +162,45 @@ public class BaseWeapon extends Item implements Construct {
 
     public void setRange(Range range) {
         this.range = range;
+        hash = 0;
     }
 
+    /**
+     * Returns a copy of the properties of the weapon.
+     * @return Sorted set of the properties of the weapon
+     */
     public SortedSet<Weapon.Property> getProperties() {
-        return properties;
+        return Weapon.Property.of(properties);
     }
 
     public void setProperties(HashSet<Weapon.Property> properties) {
-        this.properties.clear();
-        this.properties.addAll(properties);
+        this.properties = Weapon.Property.mask(properties);
+        hash = 0;
+    }
+
+    /**
+     * Returns the properties of the weapon as a mask with one bit per Weapon.Property ordinal.
+     * @return Mask of the properties of the weapon
+     */
+    public int getPropertyMask() {
+        return properties;
+    }
+
+    /**
+     * Tests whether the weapon has the given property.
+     * @param property Property to test
+     * @return true if the weapon has the property, false otherwise
+     */
+    public boolean hasProperty(Weapon.Property property) {
+        return (properties & property.bit()) != 0;
+    }
+
+    /**
+     * Returns the ability options of the weapon, looked up from its properties.
+     * @return Bitmask of the ability options, one bit per Ability.Type ordinal
+     */
+    public long getAbilityMask() {
+        return Weapon.Property.abilityMask(properties);
     }
 
     public HashMap<String, Roll> getRolls() {
@@ -127,6 +209,7 @@ public class BaseWeapon extends Item implements Construct {
 
     public void setRolls(HashMap<String, Roll> rolls) {
         this.rolls = rolls;
+        hash = 0;
     }
 
     /**
@@ -142,14 +225,12 @@ public class BaseWeapon extends Item implements Construct {
     }
 
     /**
-     * Returns a Resolvable object containing the ability options for the weapon.
+     * Returns a Resolvable object containing the ability options for the weapon, made straight from the
+     * precomputed ability mask. A new one is made on each call since a Resolvable holds its own result.
      * @return Resolvable object containing the ability options for the weapon
      */
     public Resolvable<Ability.Type> getAbilityResolvable() {
-        return new Resolvable<Ability.Type>()
-                .addIf(Ability.Type.DEX, properties.contains(Weapon.Property.RANGED)
-                        || properties.contains(Weapon.Property.FINESSE))
-                .addIf(Ability.Type.STR, !properties.contains(Weapon.Property.RANGED));
+        return Resolvable.of(getAbilityMask(), ABILITY_TYPES);
     }
 
     /**
@@ -241,6 +322,7 @@ public class BaseWeapon extends Item implements Construct {
 
         private final Damage baseDamage;
         private final SortedSet<Weapon.Property> properties;
+        private final int propertyMask;
         private final int cost;
         private final float weight;
 
@@ -253,7 +335,8 @@ public class BaseWeapon extends Item implements Construct {
          */
         Type(Damage damage, List<Weapon.Property> properties, int cost, float weight) {
             this.baseDamage = damage;
-            this.properties = new TreeSet<>(properties);
+            this.properties = Collections.unmodifiableSortedSet(new TreeSet<>(properties));
+            this.propertyMask = Weapon.Property.mask(properties);
             this.cost = cost;
             this.weight = weight;
         }
@@ -267,6 +350,10 @@ public class BaseWeapon extends Item implements Construct {
             return properties;
         }
 
+        public int getPropertyMask() {
+            return propertyMask;
+        }
+
         public int getCost() {
             return cost;
         }
@@ -281,14 +368,16 @@ public class BaseWeapon extends Item implements Construct {
      * BaseWeapon object.
      */
     public static class Factory {
-        private static final Map<String, BaseWeapon> weapons = new HashMap<>();
+        private static final Map<String, BaseWeapon> weapons = new ConcurrentHashMap<>();
 
         public static BaseWeapon create(String name) {
             BaseWeapon weapon = weapons.get(name);
             if (weapon == null) {
                 try {
                     weapon = build(name);
-                    weapons.put(name, weapon);
+                    BaseWeapon existing = weapons.putIfAbsent(name, weapon);
+                    if (existing != null)
+                        weapon = existing;
                 } catch (IllegalArgumentException e) {
                     System.out.println("Invalid weapon name: " + name +
                             ". Input needs to be built as custom weapon.");
@@ -433,13 +522,13 @@ public class BaseWeapon extends Item implements Construct {
         }
 
         public Builder with(Set<Weapon.Property> properties) {
+            this.properties = new TreeSet<>(properties);
             if (!properties.isEmpty()) {
-                this.properties = new TreeSet<>(properties);
-                for (Weapon.Property property : this.properties) {
-                    with(property);
-                }
-            } else
-                this.properties = new TreeSet<>();
+                if (!rangeSet)
+                    throw new IllegalStateException("Range must be set before properties.");
+                for (String attack : PROPERTY_ATTACKS[Weapon.Property.mask(properties)])
+                    addRoll(attack);
+            }
             return this;
         }
 
@@ -483,10 +572,10 @@ public class BaseWeapon extends Item implements Construct {
             with(type.getCost());
             weigh(type.getWeight());
             with(type.getBaseDamage());
-            setAbilities(Weapon.Property.abilities(type.getProperties()));
+            setAbilities(Weapon.Property.abilities(type.getPropertyMask()));
             if (type == Type.NET)
                 rolls.put(SAVE, Save.Factory.create(Ability.Type.DEX, Save.Descriptor.NON_MAGICAL));
-            if (!type.getProperties().contains(Weapon.Property.RANGED)) {
+            if ((type.getPropertyMask() & Weapon.Property.RANGED.bit()) == 0) {
                 addRoll(BASE_ATTACK);
             }
             with(type.getProperties());
@@ -10,6 +10,7 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.net.ProtocolException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * CustomWeapon is a class that extends BaseWeapon and is used to create custom weapons.
@@ -42,13 +43,13 @@ public class CustomWeapon extends BaseWeapon {
         }
         return builder.with(getBaseDamage())
                 .weigh(getWeight())
-                .with(getCost().getValue())
+                .with(getCostValue())
                 .with(group)
                 .with(getProperties());
     }
 
     public static class Factory extends BaseWeapon.Factory {
-        public static Map<String, CustomWeapon> weapons = new HashMap<>();
+        public static Map<String, CustomWeapon> weapons = new ConcurrentHashMap<>();
 
         public static CustomWeapon create(String name) {
             if (weapons.containsKey(name)) {
@@ -266,7 +267,7 @@ public class CustomWeapon extends BaseWeapon {
 
         public Builder with(Weapon.Property... properties) {
             if (properties.length > 0 && properties[0] != null) {
-                setAbilities(Weapon.Property.abilities(new TreeSet<>(Arrays.asList(properties))));
+                setAbilities(Weapon.Property.abilities(Weapon.Property.mask(Arrays.asList(properties))));
                 if (!Arrays.asList(properties).contains(Weapon.Property.RANGED))
                     addRoll(BaseWeapon.BASE_ATTACK);
 
@@ -0,0 +1,297 @@
+package game.items;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The items a creature carries, with their total weight, total value and the number of carried weapons with
+ * each property kept up to date as items come and go, so encumbrance never walks the items.
+ * Items are counted by identity, since weapons are shared flyweights: carrying two daggers is one entry of two.
+ * Weight is kept in hundredths of a pound so that adding and removing items never drifts.
+ */
+public class Inventory {
+    private static final Weapon.Property[] PROPERTIES = Weapon.Property.values();
+
+    // The entries of the inventory, by item
+    private final IdentityHashMap<Item, Entry> entries = new IdentityHashMap<>();
+    private long weight;
+    private long value;
+    private int size;
+    // The number of carried weapons with each property, indexed by Weapon.Property ordinal
+    private final int[] propertyCounts = new int[PROPERTIES.length];
+
+    /**
+     * An item and how many of it are carried. The properties are those the item had when first added,
+     * so that removing it undoes exactly what adding it did.
+     */
+    private static final class Entry {
+        private int quantity;
+        private final long weight;
+        private final int value;
+        private final int properties;
+
+        private Entry(Item item) {
+            this.weight = Math.round(item.getWeight() * 100.0);
+            this.value = item.getCostValue();
+            this.properties = mask(item);
+        }
+    }
+
+    private static int mask(Item item) {
+        return item instanceof BaseWeapon weapon ? weapon.getPropertyMask() : 0;
+    }
+
+    /**
+     * Adds an item to the inventory.
+     * @param item the item to add
+     * @return this inventory
+     */
+    public Inventory add(Item item) {
+        return add(item, 1);
+    }
+
+    /**
+     * Adds several of an item to the inventory.
+     * @param item the item to add
+     * @param quantity how many to add
+     * @return this inventory
+     * @throws IllegalArgumentException if the quantity is negative
+     */
+    public Inventory add(Item item, int quantity) {
+        if (quantity < 0)
+            throw new IllegalArgumentException("Cannot add a negative quantity: " + quantity);
+        change(item, quantity);
+        return this;
+    }
+
+    /**
+     * Removes an item from the inventory.
+     * @param item the item to remove
+     * @return this inventory
+     * @throws IllegalStateException if the item is not carried
+     */
+    public Inventory remove(Item item) {
+        return remove(item, 1);
+    }
+
+    /**
+     * Removes several of an item from the inventory.
+     * @param item the item to remove
+     * @param quantity how many to remove
+     * @return this inventory
+     * @throws IllegalArgumentException if the quantity is negative
+     * @throws IllegalStateException if fewer of the item are carried
+     */
+    public Inventory remove(Item item, int quantity) {
+        if (quantity < 0)
+            throw new IllegalArgumentException("Cannot remove a negative quantity: " + quantity);
+        if (count(item) < quantity)
+            throw new IllegalStateException("Cannot remove " + quantity + " of an item carried " + count(item)
+                    + " times");
+        change(item, -quantity);
+        return this;
+    }
+
+    /**
+     * Applies a change in the quantity of an item to the entries and every running total.
+     * @param item the item
+     * @param delta the change in quantity, already checked not to go below zero
+     */
+    private void change(Item item, int delta) {
+        if (delta == 0)
+            return;
+        Entry entry = entries.get(item);
+        if (entry == null)
+            entries.put(item, entry = new Entry(item));
+        entry.quantity += delta;
+        weight += entry.weight * delta;
+        value += (long) entry.value * delta;
+        size += delta;
+        for (int bits = entry.properties; bits != 0; bits &= bits - 1)
+            propertyCounts[Integer.numberOfTrailingZeros(bits)] += delta;
+        if (entry.quantity == 0)
+            entries.remove(item);
+    }
+
+    /**
+     * Starts a batch of changes, such as swapping one loadout for another, that are checked together and
+     * applied at once or not at all.
+     * @return a new batch for this inventory
+     */
+    public Batch batch() {
+        return new Batch();
+    }
+
+    /**
+     * Returns how many of the item are carried.
+     * @param item the item
+     * @return how many of the item are carried
+     */
+    public int count(Item item) {
+        Entry entry = entries.get(item);
+        return entry == null ? 0 : entry.quantity;
+    }
+
+    /**
+     * Returns how many carried weapons have the given property.
+     * @param property the property
+     * @return the number of carried weapons with the property
+     */
+    public int count(Weapon.Property property) {
+        return propertyCounts[property.ordinal()];
+    }
+
+    /**
+     * Returns the distinct items carried.
+     * @return the distinct items, in no particular order
+     */
+    public Set<Item> items() {
+        return Set.copyOf(entries.keySet());
+    }
+
+    /**
+     * Returns the number of items carried, counting each of several copies.
+     * @return the number of items
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the total weight of the items.
+     * @return the weight in pounds
+     */
+    public double getWeight() {
+        return weight / 100.0;
+    }
+
+    /**
+     * Returns the total value of the items.
+     * @return the value in copper pieces
+     */
+    public long getValue() {
+        return value;
+    }
+
+    /**
+     * Returns how encumbered a creature with the given strength score is by the items.
+     * @param strength the strength score of the carrier
+     * @return the encumbrance of the carrier
+     */
+    public Encumbrance encumbrance(int strength) {
+        return Encumbrance.of(weight, strength);
+    }
+
+    /**
+     * Returns the speed of a creature with the given strength score and speed while carrying the items.
+     * @param strength the strength score of the carrier
+     * @param speed the speed of the carrier when unencumbered
+     * @return the speed of the carrier
+     */
+    public int speed(int strength, int speed) {
+        return encumbrance(strength).speed(speed);
+    }
+
+    /**
+     * Returns a JSON representation of the inventory's totals.
+     * @return a JSON representation of the inventory
+     */
+    @Override
+    public String toString() {
+        return "Inventory{" +
+                "size=" + size +
+                ", weight=" + getWeight() +
+                ", value=" + value +
+                '}';
+    }
+
+    /**
+     * The variant encumbrance rules: carrying more than 5 times the strength score slows a creature by 10 feet,
+     * more than 10 times by 20 feet, and more than 15 times, its carrying capacity, stops it.
+     */
+    public enum Encumbrance {
+        NONE(0), ENCUMBERED(10), HEAVILY_ENCUMBERED(20), OVER_CAPACITY(Integer.MAX_VALUE);
+
+        private final int penalty;
+
+        Encumbrance(int penalty) {
+            this.penalty = penalty;
+        }
+
+        /**
+         * Returns the encumbrance of the given weight for the given strength score.
+         * @param weight the weight in hundredths of a pound
+         * @param strength the strength score of the carrier
+         * @return the encumbrance
+         */
+        private static Encumbrance of(long weight, int strength) {
+            long step = 500L * strength;
+            if (weight > 3 * step)
+                return OVER_CAPACITY;
+            if (weight > 2 * step)
+                return HEAVILY_ENCUMBERED;
+            return weight > step ? ENCUMBERED : NONE;
+        }
+
+        /**
+         * Returns the speed left to a creature under this encumbrance.
+         * @param speed the speed of the creature when unencumbered
+         * @return the reduced speed, never below 0
+         */
+        public int speed(int speed) {
+            return Math.max(0, speed - penalty);
+        }
+    }
+
+    /**
+     * A batch of changes to the inventory. Changes to the same item are netted, every removal is checked before
+     * anything changes, and the totals are updated once per item.
+     */
+    public class Batch {
+        private final IdentityHashMap<Item, Integer> changes = new IdentityHashMap<>();
+
+        private Batch() {
+        }
+
+        public Batch add(Item item) {
+            return add(item, 1);
+        }
+
+        public Batch add(Item item, int quantity) {
+            if (quantity < 0)
+                throw new IllegalArgumentException("Cannot add a negative quantity: " + quantity);
+            changes.merge(item, quantity, Integer::sum);
+            return this;
+        }
+
+        public Batch remove(Item item) {
+            return remove(item, 1);
+        }
+
+        public Batch remove(Item item, int quantity) {
+            if (quantity < 0)
+                throw new IllegalArgumentException("Cannot remove a negative quantity: " + quantity);
+            changes.merge(item, -quantity, Integer::sum);
+            return this;
+        }
+
+        /**
+         * Applies every change of the batch, or none of them if any item would be removed more times than
+         * it is carried.
+         * @return the inventory
+         * @throws IllegalStateException if the batch removes more of an item than is carried
+         */
+        public Inventory apply() {
+            for (Map.Entry<Item, Integer> change : changes.entrySet()) {
+                if (count(change.getKey()) + change.getValue() < 0)
+                    throw new IllegalStateException("Cannot remove " + -change.getValue()
+                            + " of an item carried " + count(change.getKey()) + " times");
+            }
+            for (Map.Entry<Item, Integer> change : changes.entrySet())
+                change(change.getKey(), change.getValue());
+            changes.clear();
+            return Inventory.this;
+        }
+    }
+}
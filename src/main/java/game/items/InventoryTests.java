@@ -0,0 +1,42 @@
+package game.items;
+
+import game.entities.AbilityContour;
+import game.entities.Creature;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class InventoryTests {
+    @Test
+    public void testInventory() {
+        Creature carrier = new Creature(new AbilityContour(new int[]{10, 10, 10, 10, 10, 10}), 10, "Carrier")
+                .withSpeed(30);
+        BaseWeapon dagger = BaseWeapon.Factory.create("Dagger");
+        BaseWeapon longsword = BaseWeapon.Factory.create("Longsword");
+        Inventory inventory = carrier.inventory().add(dagger, 3).add(longsword);
+        Assertions.assertEquals(4, inventory.size());
+        Assertions.assertEquals(3 * dagger.getWeight() + longsword.getWeight(), inventory.getWeight(), 1e-9);
+        Assertions.assertEquals(3 * 200 + longsword.getCostValue(), inventory.getValue());
+        Assertions.assertEquals(3, inventory.count(Weapon.Property.FINESSE));
+        Assertions.assertEquals(1, inventory.count(Weapon.Property.VERSATILE));
+        Assertions.assertEquals(Inventory.Encumbrance.NONE, carrier.getEncumbrance());
+
+        Item anvil = new Item.Builder().as("Anvil").weigh(60f).with(500).build();
+        inventory.add(anvil);
+        Assertions.assertEquals(Inventory.Encumbrance.ENCUMBERED, carrier.getEncumbrance());
+        Assertions.assertEquals(20, carrier.getEncumberedSpeed());
+        inventory.add(anvil, 2);
+        Assertions.assertEquals(Inventory.Encumbrance.OVER_CAPACITY, carrier.getEncumbrance());
+        Assertions.assertEquals(0, carrier.getEncumberedSpeed());
+
+        // A swap that removes more than is carried changes nothing
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> inventory.batch().remove(anvil, 3).remove(dagger, 4).add(longsword).apply());
+        Assertions.assertEquals(3, inventory.count(anvil));
+        inventory.batch().remove(anvil, 3).remove(dagger, 3).add(longsword).apply();
+        Assertions.assertEquals(2, inventory.size());
+        Assertions.assertEquals(0, inventory.count(Weapon.Property.FINESSE));
+        Assertions.assertEquals(2 * longsword.getWeight(), inventory.getWeight(), 1e-9);
+        Assertions.assertEquals(30, carrier.getEncumberedSpeed());
+        Assertions.assertThrows(IllegalStateException.class, () -> inventory.remove(dagger));
+    }
+}
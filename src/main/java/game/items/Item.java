@@ -20,10 +20,22 @@ public class Item implements Construct {
         return Coin.Factory.change(costVal);
     }
 
+    /**
+     * Returns the cost of the item in copper pieces without making change for it.
+     * @return the cost in copper pieces
+     */
+    public int getCostValue() {
+        return costVal;
+    }
+
     public float getWeight() {
         return weight;
     }
 
+    public String getName() {
+        return name;
+    }
+
     @Override
     public String toString() {
         return "Item{" + substring() + "}";
@@ -2,6 +2,8 @@ package game.items;
 
 import game.entities.Ability;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -42,6 +44,87 @@ public class Weapon {
         RANGED, REACH, THROWN, VERSATILE, FINESSE, HEAVY, LIGHT, LOADING,
         SPECIAL, TWO_HANDED, AMMUNITION;
 
+        private static final Property[] VALUES = values();
+        /**
+         * The number of distinct property masks, one bit per property.
+         */
+        public static final int COMBINATIONS = 1 << VALUES.length;
+        // The ability options of every property mask, as a bitmask over Ability.Type ordinals and as a set
+        private static final long[] ABILITY_MASKS = new long[COMBINATIONS];
+        private static final SortedSet<Ability.Type>[] ABILITY_SETS = abilityTable();
+
+        @SuppressWarnings("unchecked")
+        private static SortedSet<Ability.Type>[] abilityTable() {
+            SortedSet<Ability.Type>[] sets = (SortedSet<Ability.Type>[]) new SortedSet<?>[COMBINATIONS];
+            for (int mask = 0; mask < COMBINATIONS; mask++) {
+                TreeSet<Ability.Type> modifiers = new TreeSet<>();
+                modifiers.add((mask & RANGED.bit()) == 0 ? Ability.Type.STR : Ability.Type.DEX);
+                if ((mask & FINESSE.bit()) != 0)
+                    modifiers.add(Ability.Type.DEX);
+                sets[mask] = Collections.unmodifiableSortedSet(modifiers);
+                for (Ability.Type type : modifiers)
+                    ABILITY_MASKS[mask] |= 1L << type.ordinal();
+            }
+            return sets;
+        }
+
+        /**
+         * Returns the bit of the property in a property mask.
+         *
+         * @return Bit of the property.
+         */
+        public int bit() {
+            return 1 << ordinal();
+        }
+
+        /**
+         * Packs the properties into a mask with one bit per property.
+         *
+         * @param properties Properties to pack, or null for none.
+         * @return Mask of the properties.
+         */
+        public static int mask(Collection<Property> properties) {
+            int mask = 0;
+            if (properties != null) {
+                for (Property property : properties)
+                    mask |= property.bit();
+            }
+            return mask;
+        }
+
+        /**
+         * Unpacks a property mask into a sorted set.
+         *
+         * @param mask Mask of the properties.
+         * @return Sorted set of the properties in the mask.
+         */
+        public static SortedSet<Property> of(int mask) {
+            TreeSet<Property> properties = new TreeSet<>();
+            for (int bits = mask; bits != 0; bits &= bits - 1)
+                properties.add(VALUES[Integer.numberOfTrailingZeros(bits)]);
+            return properties;
+        }
+
+        /**
+         * Returns the precomputed ability options of the weapon with the given properties as a bitmask.
+         *
+         * @param mask Mask of the properties of the weapon.
+         * @return Bitmask of the ability options, one bit per Ability.Type ordinal.
+         */
+        public static long abilityMask(int mask) {
+            return ABILITY_MASKS[mask];
+        }
+
+        /**
+         * Returns the precomputed ability options of the weapon with the given properties.
+         *
+         * @param mask Mask of the properties of the weapon.
+         * @return Unmodifiable sorted set of the ability options.
+         */
+        public static SortedSet<Ability.Type> abilities(int mask) {
+            return ABILITY_SETS[mask];
+        }
+
         /**
          * Sorts the properties in a sorted set.
          *
@@ -58,17 +141,10 @@ public class Weapon {
          * Returns the abilities that are used for the weapon based on the properties.
          *
          * @param properties Properties of the weapon.
-         * @return Sorted set of abilities used for the weapon.
+         * @return Unmodifiable sorted set of abilities used for the weapon.
          */
         public static SortedSet<Ability.Type> abilities(SortedSet<Property> properties) {
-            TreeSet<Ability.Type> modifiers = new TreeSet<>();
-            if (!properties.contains(RANGED))
-                modifiers.add(Ability.Type.STR);
-            else
-                modifiers.add(Ability.Type.DEX);
-            if (properties.contains(FINESSE))
-                modifiers.add(Ability.Type.DEX);
-            return modifiers;
+            return abilities(mask(properties));
         }
     }
 }
@@ -1,11 +1,16 @@
 package game.items;
 
+import game.entities.Ability;
 import mechanics.dice.Damage;
 import mechanics.dice.Die;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.net.ProtocolException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 public class WeaponTests {
     @Test
@@ -37,6 +42,12 @@ public class WeaponTests {
                 .with(Weapon.Property.FINESSE, Weapon.Property.LIGHT, Weapon.Property.THROWN);
         CustomWeapon dagger3 = builder.build();
         Assertions.assertEquals(dagger, dagger3);
+        Assertions.assertEquals(dagger.hashCode(), dagger3.hashCode());
+        Assertions.assertEquals(2, new HashSet<>(List.of(dagger, dagger3, longsword)).size());
+
+        Assertions.assertEquals(dagger3, dagger);
+        CustomWeapon heavyDagger = builder.weigh(2).build();
+        Assertions.assertNotEquals(dagger3, heavyDagger);
     }
 
     @Test
@@ -88,4 +99,32 @@ public class WeaponTests {
         Assertions.assertEquals(weapon, BaseWeapon.Factory.create("Warhammer"));
         Assertions.assertEquals(longbow, BaseWeapon.Factory.create("Longbow"));
     }
+
+    @Test
+    public void testPropertyMask() {
+        BaseWeapon dagger = BaseWeapon.Factory.create("Dagger");
+        Assertions.assertEquals(Weapon.Property.mask(BaseWeapon.Type.DAGGER.getProperties()), dagger.getPropertyMask());
+        Assertions.assertEquals(BaseWeapon.Type.DAGGER.getProperties(), dagger.getProperties());
+        Assertions.assertTrue(dagger.hasProperty(Weapon.Property.FINESSE));
+        Assertions.assertFalse(dagger.hasProperty(Weapon.Property.RANGED));
+        Assertions.assertEquals(Set.of(Ability.Type.STR, Ability.Type.DEX), dagger.getAbilityResolvable().types().stream()
+                .collect(Collectors.toSet()));
+        Assertions.assertTrue(dagger.getRolls().containsKey("Thrown"));
+
+        BaseWeapon longbow = BaseWeapon.Factory.create("Longbow");
+        Assertions.assertEquals(1L << Ability.Type.DEX.ordinal(), longbow.getAbilityMask());
+        Assertions.assertFalse(longbow.getRolls().containsKey("Base"));
+
+        // Every combination of properties agrees with the rules the table was built from
+        for (int mask = 0; mask < Weapon.Property.COMBINATIONS; mask++) {
+            Set<Weapon.Property> properties = Weapon.Property.of(mask);
+            Assertions.assertEquals(mask, Weapon.Property.mask(properties));
+            Set<Ability.Type> expected = new HashSet<>();
+            if (!properties.contains(Weapon.Property.RANGED))
+                expected.add(Ability.Type.STR);
+            if (properties.contains(Weapon.Property.RANGED) || properties.contains(Weapon.Property.FINESSE))
+                expected.add(Ability.Type.DEX);
+            Assertions.assertEquals(expected, Weapon.Property.abilities(mask));
+        }
+    }
 }
@@ -0,0 +1,143 @@
+package mechanics;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Exact chances of meeting a DC with a d20 roll plus a bonus.
+ * A single d20 meets a face f with chance (21 - f) / 20. Advantage takes the better of two rolls and
+ * disadvantage the worse, so they square the chance of failing or of succeeding respectively.
+ * Attacks follow the natural 1 and natural 20 rules: a 1 always misses and a 20 always hits.
+ * Contests compare two such rolls through the chance of every d20 face under each side's mode.
+ */
+public final class Odds {
+    // The highest DC covered by the tables
+    public static final int MAX_DC = 30;
+    // chances[mode][face] is the chance of rolling at least the face, for faces 0 to 21
+    private static final double[][] chances = new double[RollMode.values().length][22];
+    // Tables of the chance against every DC, keyed by bonus, mode and whether natural rolls count
+    private static final ConcurrentHashMap<Long, double[]> tables = new ConcurrentHashMap<>();
+    // faces[mode][face] is the chance of the d20 landing on the face, for faces 1 to 20
+    private static final double[][] faces = new double[RollMode.values().length][21];
+    // Chances of winning and tying a contest, keyed by bonus difference and both modes
+    private static final ConcurrentHashMap<Long, double[]> contests = new ConcurrentHashMap<>();
+
+    static {
+        for (int face = 0; face <= 21; face++) {
+            double single = Math.min(1, Math.max(0, (21 - face) / 20.0));
+            chances[RollMode.STRAIGHT.ordinal()][face] = single;
+            chances[RollMode.ADVANTAGE.ordinal()][face] = 1 - (1 - single) * (1 - single);
+            chances[RollMode.DISADVANTAGE.ordinal()][face] = single * single;
+        }
+        for (int face = 1; face <= 20; face++) {
+            faces[RollMode.STRAIGHT.ordinal()][face] = 1 / 20.0;
+            faces[RollMode.ADVANTAGE.ordinal()][face] = (2 * face - 1) / 400.0;
+            faces[RollMode.DISADVANTAGE.ordinal()][face] = (41 - 2 * face) / 400.0;
+        }
+    }
+
+    private Odds() {
+    }
+
+    /**
+     * Returns the chance of meeting the DC with a d20 roll plus the bonus.
+     * @param bonus the bonus added to the d20
+     * @param mode the mode of the roll
+     * @param dc the DC, or AC for attacks, to meet
+     * @param natural whether a natural 1 always fails and a natural 20 always succeeds
+     * @return the chance of success, between 0 and 1
+     */
+    public static double success(int bonus, RollMode mode, int dc, boolean natural) {
+        // Subtract in long arithmetic so extreme bonuses cannot overflow
+        long face = (long) dc - bonus;
+        int low = natural ? 2 : 0, high = natural ? 20 : 21;
+        return chances[mode.ordinal()][(int) Math.min(high, Math.max(low, face))];
+    }
+
+    /**
+     * Returns the chance that the natural d20 roll is at least the given face.
+     * @param mode the mode of the roll
+     * @param face the face to roll at least
+     * @return the chance of rolling at least the face
+     */
+    public static double atLeast(RollMode mode, int face) {
+        return chances[mode.ordinal()][Math.min(21, Math.max(0, face))];
+    }
+
+    /**
+     * Returns the chance of rolling a natural 20, a critical hit for attacks.
+     * @param mode the mode of the roll
+     * @return the chance of a natural 20
+     */
+    public static double critical(RollMode mode) {
+        return chances[mode.ordinal()][20];
+    }
+
+    /**
+     * Returns the chance of meeting every DC from 0 to {@link #MAX_DC}, indexed by DC.
+     * Tables are built once per bonus, mode and rule; each call returns its own copy.
+     * @param bonus the bonus added to the d20
+     * @param mode the mode of the roll
+     * @param natural whether a natural 1 always fails and a natural 20 always succeeds
+     * @return the chance of success against each DC
+     */
+    public static double[] table(int bonus, RollMode mode, boolean natural) {
+        long key = ((long) bonus << 3) | ((long) mode.ordinal() << 1) | (natural ? 1 : 0);
+        return tables.computeIfAbsent(key, k -> {
+            double[] table = new double[MAX_DC + 1];
+            for (int dc = 0; dc <= MAX_DC; dc++)
+                table[dc] = success(bonus, mode, dc, natural);
+            return table;
+        }).clone();
+    }
+
+    /**
+     * Returns the chance that the first roll strictly beats the second in a contest.
+     * A tie leaves the situation as it was, so the side starting the contest must roll higher to win.
+     * @param bonus the bonus of the side starting the contest
+     * @param mode the mode of the side starting the contest
+     * @param otherBonus the bonus of the other side
+     * @param otherMode the mode of the other side
+     * @return the chance that the starting side wins
+     */
+    public static double contest(int bonus, RollMode mode, int otherBonus, RollMode otherMode) {
+        return contestOdds(bonus, mode, otherBonus, otherMode)[0];
+    }
+
+    /**
+     * Returns the chance that a contest ends in a tie.
+     * @param bonus the bonus of the side starting the contest
+     * @param mode the mode of the side starting the contest
+     * @param otherBonus the bonus of the other side
+     * @param otherMode the mode of the other side
+     * @return the chance of a tie
+     */
+    public static double tie(int bonus, RollMode mode, int otherBonus, RollMode otherMode) {
+        return contestOdds(bonus, mode, otherBonus, otherMode)[1];
+    }
+
+    /**
+     * Finds the chances of winning and tying a contest, memoized by the difference of the bonuses,
+     * since only the difference changes the outcome.
+     * @return the chances of winning and of tying
+     */
+    private static double[] contestOdds(int bonus, RollMode mode, int otherBonus, RollMode otherMode) {
+        // Beyond a difference of 20 one side can no longer tie or lose
+        long difference = Math.max(-20, Math.min(20, (long) bonus - otherBonus));
+        long key = (difference << 4) | ((long) mode.ordinal() << 2) | otherMode.ordinal();
+        return contests.computeIfAbsent(key, k -> {
+            double[] mine = faces[mode.ordinal()], theirs = faces[otherMode.ordinal()];
+            double win = 0, tie = 0;
+            for (int face = 1; face <= 20; face++) {
+                for (int other = 1; other <= 20; other++) {
+                    double p = mine[face] * theirs[other];
+                    long margin = face + difference - other;
+                    if (margin > 0)
+                        win += p;
+                    else if (margin == 0)
+                        tie += p;
+                }
+            }
+            return new double[]{win, tie};
+        });
+    }
+}
@@ -0,0 +1,480 @@
+package mechanics;
+
+import game.entities.Creature;
+import mechanics.actions.Roll;
+import mechanics.dice.RandomSource;
+import mechanics.dice.Rollable;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Monte-Carlo simulation of a Rollable, or of a Roll made by a Creature, over many trials.
+ * Trials are split across a fork-join pool. Every task rolls with its own source split off the
+ * simulation's source and tallies its results into a primitive histogram, and the histograms are
+ * merged once the tasks finish. A seeded simulation gives the same result on every run.
+ * Successes against the DC are counted as the trials are rolled, so attack rolls follow the natural 1 and
+ * natural 20 rules just as they do when made.
+ */
+public final class Simulation implements Construct {
+    // Trials rolled by a single task before it stops splitting
+    private static final long LEAF_TRIALS = 1 << 14;
+    // Results rolled into a buffer at a time before they are tallied
+    private static final int BATCH = 1 << 10;
+
+    private final Sampler sampler;
+    private final long trials;
+    private final RandomSource rng;
+    // The seed of a seeded simulation, which starts every run from a fresh source
+    private final Long seed;
+    private final Integer dc;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs the simulation from the given Builder.
+     * @param builder the Builder to construct the simulation
+     */
+    private Simulation(Builder builder) {
+        this.sampler = builder.sampler;
+        this.trials = builder.trials;
+        this.rng = builder.rng;
+        this.seed = builder.seed;
+        this.dc = builder.dc;
+        this.pool = builder.pool;
+    }
+
+    /**
+     * Runs every trial of the simulation.
+     * @return the result of the simulation
+     */
+    public Result run() {
+        RandomSource source = seed == null ? rng : RandomSource.seeded(seed);
+        return new Result(pool.invoke(new Trials(trials, source)), dc);
+    }
+
+    /**
+     * Deconstructs the simulation into a Builder, such as to rerun it with more trials.
+     * @return a Builder with the same settings
+     */
+    @Override
+    public Builder deconstruct() {
+        Builder builder = new Builder().trials(trials).with(rng).with(pool);
+        builder.sampler = sampler;
+        builder.seed = seed;
+        builder.dc = dc;
+        return builder;
+    }
+
+    /**
+     * Rolls a batch of results into a buffer, returning how many of them meet the DC.
+     */
+    @FunctionalInterface
+    private interface Sampler {
+        int sample(int[] out, int n, RandomSource rng, int dc);
+    }
+
+    /**
+     * Task rolling a range of trials, splitting in half until the range is small enough.
+     */
+    private final class Trials extends RecursiveTask<Histogram> {
+        private final long count;
+        private final RandomSource rng;
+
+        private Trials(long count, RandomSource rng) {
+            this.count = count;
+            this.rng = rng;
+        }
+
+        @Override
+        protected Histogram compute() {
+            if (count <= LEAF_TRIALS) {
+                Histogram histogram = new Histogram();
+                int[] buffer = new int[(int) Math.min(BATCH, Math.max(count, 1))];
+                // Without a DC every result counts as a success, and the count goes unused
+                int target = dc == null ? Integer.MIN_VALUE : dc;
+                for (long done = 0; done < count; ) {
+                    int n = (int) Math.min(buffer.length, count - done);
+                    histogram.successes += sampler.sample(buffer, n, rng, target);
+                    for (int i = 0; i < n; i++)
+                        histogram.add(buffer[i]);
+                    done += n;
+                }
+                return histogram;
+            }
+            long half = count >>> 1;
+            // Split before forking so the streams do not depend on scheduling
+            Trials left = new Trials(half, rng.split());
+            Trials right = new Trials(count - half, rng);
+            left.fork();
+            Histogram histogram = right.compute();
+            return histogram.merge(left.join());
+        }
+    }
+
+    /**
+     * Growable histogram of integer results, counted from the lowest result seen.
+     */
+    private static final class Histogram {
+        private int min = 0;
+        private long[] counts = new long[0];
+        // The number of results that met the DC
+        private long successes;
+
+        private void add(int value) {
+            if (counts.length == 0) {
+                min = value;
+                counts = new long[8];
+            } else if (value < min || value >= min + counts.length) {
+                grow(Math.min(value, min), Math.max(value, min + counts.length - 1));
+            }
+            counts[value - min]++;
+        }
+
+        private void grow(int low, int high) {
+            long[] larger = new long[Math.max(high - low + 1, counts.length * 2)];
+            System.arraycopy(counts, 0, larger, min - low, counts.length);
+            counts = larger;
+            min = low;
+        }
+
+        private Histogram merge(Histogram other) {
+            successes += other.successes;
+            if (other.counts.length == 0)
+                return this;
+            if (counts.length == 0) {
+                min = other.min;
+                counts = other.counts;
+                return this;
+            }
+            int low = Math.min(min, other.min);
+            int high = Math.max(min + counts.length, other.min + other.counts.length) - 1;
+            if (low < min || high >= min + counts.length)
+                grow(low, high);
+            for (int i = 0; i < other.counts.length; i++)
+                counts[other.min - min + i] += other.counts[i];
+            return this;
+        }
+    }
+
+    /**
+     * The merged results of a simulation.
+     */
+    public static final class Result {
+        // The z score of a 95% confidence interval
+        public static final double Z_95 = 1.959963984540054;
+
+        private final int min;
+        // counts[i] is the number of trials that rolled min + i
+        private final long[] counts;
+        // cumulative[i] is the number of trials that rolled at most min + i
+        private final long[] cumulative;
+        private final long trials;
+        private final long successes;
+        private final double mean;
+        private final double variance;
+        private final Integer dc;
+
+        /**
+         * Summarizes the given histogram.
+         * @param histogram the merged histogram of every trial
+         * @param dc the DC to measure success against, or null
+         */
+        private Result(Histogram histogram, Integer dc) {
+            // Trim empty counts at either end
+            int first = 0, last = histogram.counts.length - 1;
+            while (first <= last && histogram.counts[first] == 0)
+                first++;
+            while (last >= first && histogram.counts[last] == 0)
+                last--;
+            this.min = histogram.min + first;
+            this.counts = Arrays.copyOfRange(histogram.counts, first, Math.max(first, last + 1));
+            this.cumulative = new long[counts.length];
+            long total = 0;
+            double sum = 0;
+            for (int i = 0; i < counts.length; i++) {
+                total += counts[i];
+                cumulative[i] = total;
+                sum += (double) (min + i) * counts[i];
+            }
+            this.trials = total;
+            this.successes = histogram.successes;
+            this.mean = total == 0 ? 0 : sum / total;
+            double squares = 0;
+            for (int i = 0; i < counts.length; i++) {
+                double delta = min + i - mean;
+                squares += delta * delta * counts[i];
+            }
+            this.variance = total < 2 ? 0 : squares / (total - 1);
+            this.dc = dc;
+        }
+
+        /**
+         * Returns the number of trials run.
+         * @return the number of trials
+         */
+        public long trials() {
+            return trials;
+        }
+
+        /**
+         * Returns the lowest result rolled.
+         * @return the lowest result
+         */
+        public int min() {
+            return min;
+        }
+
+        /**
+         * Returns the highest result rolled.
+         * @return the highest result
+         */
+        public int max() {
+            return min + counts.length - 1;
+        }
+
+        /**
+         * Returns the mean of the results.
+         * @return the sample mean
+         */
+        public double mean() {
+            return mean;
+        }
+
+        /**
+         * Returns the sample variance of the results.
+         * @return the sample variance
+         */
+        public double variance() {
+            return variance;
+        }
+
+        /**
+         * Returns the sample standard deviation of the results.
+         * @return the sample standard deviation
+         */
+        public double standardDeviation() {
+            return Math.sqrt(variance);
+        }
+
+        /**
+         * Returns the standard error of the mean.
+         * @return the standard error of the mean
+         */
+        public double standardError() {
+            return trials == 0 ? 0 : Math.sqrt(variance / trials);
+        }
+
+        /**
+         * Returns the confidence interval of the mean for the given z score.
+         * ex.: confidenceInterval(Result.Z_95) for a 95% interval
+         * @param z the z score of the interval
+         * @return the lower and upper bounds of the interval
+         */
+        public double[] confidenceInterval(double z) {
+            double margin = z * standardError();
+            return new double[]{mean - margin, mean + margin};
+        }
+
+        /**
+         * Returns the fraction of trials that rolled exactly the given value.
+         * @param value the value rolled
+         * @return the observed probability of the value
+         */
+        public double probability(int value) {
+            int index = value - min;
+            return index < 0 || index >= counts.length ? 0 : (double) counts[index] / trials;
+        }
+
+        /**
+         * Returns the fraction of trials that rolled at least the given value.
+         * @param value the value to roll at least
+         * @return the observed probability of meeting the value
+         */
+        public double atLeast(int value) {
+            int index = value - min;
+            if (index <= 0)
+                return trials == 0 ? 0 : 1;
+            if (index > counts.length)
+                return 0;
+            return (double) (trials - cumulative[index - 1]) / trials;
+        }
+
+        /**
+         * Returns the smallest result that at least the given fraction of trials rolled at or below.
+         * ex.: percentile(0.5) is the median
+         * @param fraction the fraction between 0 and 1
+         * @return the result at the given percentile
+         */
+        public int percentile(double fraction) {
+            if (fraction < 0 || fraction > 1)
+                throw new IllegalArgumentException("Percentile must be between 0 and 1: " + fraction);
+            if (trials == 0)
+                throw new IllegalStateException("No trials were run");
+            long target = Math.max(1, (long) Math.ceil(fraction * trials));
+            int index = Arrays.binarySearch(cumulative, target);
+            if (index < 0)
+                index = -index - 1;
+            // Results nobody rolled repeat the previous count; settle on the first
+            while (index > 0 && cumulative[index - 1] >= target)
+                index--;
+            return min + index;
+        }
+
+        /**
+         * Returns the fraction of trials that succeeded against the DC of the simulation.
+         * Unlike {@link #atLeast(int)}, this counts attack rolls by the natural 1 and natural 20 rules.
+         * @return the observed success rate
+         * @throws IllegalStateException if the simulation has no DC
+         */
+        public double successRate() {
+            if (dc == null)
+                throw new IllegalStateException("The simulation was not run against a DC");
+            return trials == 0 ? 0 : (double) successes / trials;
+        }
+
+        /**
+         * Returns the confidence interval of the success rate for the given z score.
+         * @param z the z score of the interval
+         * @return the lower and upper bounds of the interval
+         */
+        public double[] successInterval(double z) {
+            double rate = successRate();
+            double margin = trials == 0 ? 0 : z * Math.sqrt(rate * (1 - rate) / trials);
+            return new double[]{Math.max(0, rate - margin), Math.min(1, rate + margin)};
+        }
+
+        /**
+         * Returns the JSON representation of the result.
+         * @return the JSON representation of the result
+         */
+        @Override
+        public String toString() {
+            return "Result{" +
+                    "trials=" + trials +
+                    ", min=" + min +
+                    ", max=" + max() +
+                    ", mean=" + mean +
+                    ", variance=" + variance +
+                    (dc == null ? "" : ", dc=" + dc + ", successRate=" + successRate()) +
+                    '}';
+        }
+    }
+
+    /**
+     * Builder for a simulation.
+     */
+    public static class Builder implements Constructor {
+        private Sampler sampler;
+        private long trials = 100_000;
+        private RandomSource rng = RandomSource.DEFAULT;
+        private Long seed;
+        private Integer dc;
+        private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        /**
+         * Simulates rolling the given Rollable.
+         * @param rollable the Rollable to roll
+         * @return this Builder as per the Builder pattern
+         */
+        public Builder with(Rollable rollable) {
+            this.sampler = (out, n, rng, dc) -> {
+                rollable.rollInto(out, 0, n, rng);
+                int successes = 0;
+                for (int i = 0; i < n; i++)
+                    if (out[i] >= dc)
+                        successes++;
+                return successes;
+            };
+            return this;
+        }
+
+        /**
+         * Simulates the given creature making the roll with the given mode.
+         * The creature's bonus is resolved once, when the simulation is built.
+         * Successes are judged as {@link Roll#succeeds(int, int, int)} does.
+         * @param roll the roll to make
+         * @param creature the creature making the roll
+         * @param mode the mode of the roll
+         * @return this Builder as per the Builder pattern
+         */
+        public Builder with(Roll roll, Creature creature, RollMode mode) {
+            int bonus = roll.bonus(creature);
+            this.sampler = (out, n, rng, dc) -> {
+                int successes = 0;
+                for (int i = 0; i < n; i++) {
+                    int natural = roll.rollWith(mode, rng);
+                    out[i] = natural + bonus;
+                    if (roll.succeeds(natural, out[i], dc))
+                        successes++;
+                }
+                return successes;
+            };
+            return this;
+        }
+
+        /**
+         * Sets the number of trials to run.
+         * @param trials the number of trials
+         * @return this Builder as per the Builder pattern
+         */
+        public Builder trials(long trials) {
+            this.trials = trials;
+            return this;
+        }
+
+        /**
+         * Seeds the simulation, so that it gives the same result on every run.
+         * @param seed the seed of the simulation
+         * @return this Builder as per the Builder pattern
+         */
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Sets the source of randomness the simulation splits between its tasks, replacing any seed.
+         * @param rng the source of randomness
+         * @return this Builder as per the Builder pattern
+         */
+        public Builder with(RandomSource rng) {
+            this.rng = rng;
+            this.seed = null;
+            return this;
+        }
+
+        /**
+         * Measures the success rate of the simulation against the given DC.
+         * @param dc the DC to meet
+         * @return this Builder as per the Builder pattern
+         */
+        public Builder against(int dc) {
+            this.dc = dc;
+            return this;
+        }
+
+        /**
+         * Runs the simulation on the given pool instead of the common pool.
+         * @param pool the pool to run on
+         * @return this Builder as per the Builder pattern
+         */
+        public Builder with(ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        /**
+         * Builds the simulation.
+         * @return the simulation
+         */
+        @Override
+        public Simulation build() {
+            if (sampler == null)
+                throw new IllegalStateException("Nothing to simulate");
+            if (trials < 1)
+                throw new IllegalArgumentException("A simulation needs at least one trial: " + trials);
+            return new Simulation(this);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package mechanics.actions;
+
+import game.entities.Ability;
+import game.entities.Creature;
+import mechanics.Odds;
+import mechanics.RollMode;
+import mechanics.dice.CompiledDice;
+import mechanics.dice.RandomSource;
+
+/**
+ * A snapshot of everything a Creature needs to make a WeaponAttack: its to-hit bonus, the ability it attacks with,
+ * its compiled normal and critical damage and its critical range.
+ * Built once per creature and attack, so making the attack is a handful of primitive operations.
+ * A profile belongs to a revision of its creature, and goes stale once the creature's abilities or
+ * proficiencies change.
+ * @see Creature#profile(WeaponAttack)
+ */
+public final class AttackProfile {
+    private final Creature creature;
+    private final WeaponAttack attack;
+    // The revision of the creature the profile was built from
+    private final int revision;
+    private final Ability.Type ability;
+    private final int toHit;
+    // The lowest natural roll that scores a critical hit
+    private final int criticalRange;
+    // The damage dice plus the ability modifier, and the same with the dice doubled
+    private final CompiledDice damage;
+    private final CompiledDice criticalDamage;
+
+    /**
+     * Constructs a profile of the creature making the attack.
+     * @param creature the creature making the attack
+     * @param attack the attack to make
+     * @param criticalRange the lowest natural roll that scores a critical hit
+     */
+    private AttackProfile(Creature creature, WeaponAttack attack, int criticalRange) {
+        if (criticalRange < 2 || criticalRange > 20)
+            throw new IllegalArgumentException("Critical range must be between 2 and 20: " + criticalRange);
+        this.creature = creature;
+        this.attack = attack;
+        this.revision = creature.revision();
+        Ability resolved = attack.resolveAbility(creature);
+        this.ability = resolved.type();
+        int modifier = resolved.modifier();
+        this.toHit = creature.getProficiency(attack) + modifier;
+        this.criticalRange = criticalRange;
+        this.damage = attack.getDamage().compile().deconstruct().with(modifier).build();
+        this.criticalDamage = attack.getDamage().compile().critical().deconstruct().with(modifier).build();
+    }
+
+    /**
+     * Builds the profile of the creature making the attack, scoring critical hits on a natural 20.
+     * @param creature the creature making the attack
+     * @param attack the attack to make
+     * @return the profile of the attack
+     */
+    public static AttackProfile of(Creature creature, WeaponAttack attack) {
+        return new AttackProfile(creature, attack, 20);
+    }
+
+    /**
+     * Returns a copy of the profile that scores critical hits on the given natural roll or higher.
+     * ex.: withCriticalRange(19) for Improved Critical
+     * @param lowest the lowest natural roll that scores a critical hit
+     * @return the profile with the given critical range
+     */
+    public AttackProfile withCriticalRange(int lowest) {
+        return new AttackProfile(creature, attack, lowest);
+    }
+
+    /**
+     * Makes the attack against the given armor class and rolls its damage.
+     * A natural 1 always misses, and a natural roll in the critical range always hits for critical damage.
+     * @param armorClass the armor class of the target
+     * @param mode the mode of the attack roll
+     * @param rng the source of randomness
+     * @return the damage dealt, 0 on a miss
+     */
+    public int attack(int armorClass, RollMode mode, RandomSource rng) {
+        int natural = attack.rollWith(mode, rng);
+        if (natural == 1)
+            return 0;
+        if (natural >= criticalRange)
+            return Math.max(0, criticalDamage.roll(rng));
+        if (natural + toHit < armorClass)
+            return 0;
+        return Math.max(0, damage.roll(rng));
+    }
+
+    /**
+     * Returns the exact chance of hitting the given armor class, including critical hits.
+     * @param armorClass the armor class of the target
+     * @param mode the mode of the attack roll
+     * @return the chance of hitting
+     */
+    public double hitProbability(int armorClass, RollMode mode) {
+        long needed = (long) armorClass - toHit;
+        return Odds.atLeast(mode, (int) Math.max(2, Math.min(criticalRange, needed)));
+    }
+
+    /**
+     * Returns the exact chance of scoring a critical hit.
+     * @param mode the mode of the attack roll
+     * @return the chance of a critical hit
+     */
+    public double criticalProbability(RollMode mode) {
+        return Odds.atLeast(mode, criticalRange);
+    }
+
+    /**
+     * Returns the exact expected damage of the attack against the given armor class.
+     * Damage never drops below 0, as in {@link #attack(int, RollMode, RandomSource)}.
+     * @param armorClass the armor class of the target
+     * @param mode the mode of the attack roll
+     * @return the expected damage per attack
+     */
+    public double expectedDamage(int armorClass, RollMode mode) {
+        double critical = criticalProbability(mode);
+        return (hitProbability(armorClass, mode) - critical) * damage.distribution().atLeastFloor(0).mean()
+                + critical * criticalDamage.distribution().atLeastFloor(0).mean();
+    }
+
+    /**
+     * Returns whether the profile still matches its creature.
+     * @return true if the creature has not changed since the profile was built
+     */
+    public boolean isCurrent() {
+        return creature.revision() == revision;
+    }
+
+    public Creature getCreature() {
+        return creature;
+    }
+
+    public WeaponAttack getAttack() {
+        return attack;
+    }
+
+    public Ability.Type ability() {
+        return ability;
+    }
+
+    public int toHit() {
+        return toHit;
+    }
+
+    public int criticalRange() {
+        return criticalRange;
+    }
+
+    public CompiledDice damage() {
+        return damage;
+    }
+
+    public CompiledDice criticalDamage() {
+        return criticalDamage;
+    }
+
+    /**
+     * Returns the JSON representation of the profile.
+     * @return the JSON representation of the profile
+     */
+    @Override
+    public String toString() {
+        return "AttackProfile{" +
+                "creature=" + creature.getName() +
+                ", ability=" + ability +
+                ", toHit=" + toHit +
+                ", criticalRange=" + criticalRange +
+                ", damage=" + damage.display() +
+                ", criticalDamage=" + criticalDamage.display() +
+                '}';
+    }
+}
@@ -1,11 +1,14 @@
 package mechanics.actions;
 
-import communication.Resolvable;
 import game.entities.Ability;
 import game.entities.Creature;
+import mechanics.Odds;
+import mechanics.RollMode;
 import mechanics.dice.Damage;
+import mechanics.dice.RandomSource;
 
 public abstract class AttackRoll extends Roll {
+    private static final Ability.Type[] ABILITY_TYPES = Ability.Type.values();
     private Damage damage;
 
     /**
@@ -18,6 +21,17 @@ public abstract class AttackRoll extends Roll {
         this.damage = builder.damage;
     }
 
+    /**
+     * Resolves the creature's best Ability for the Attack straight from the ability mask, without
+     * building a Resolvable.
+     *
+     * @param creature the Creature to resolve the Ability for
+     * @return the resolved Ability
+     */
+    public Ability resolveAbility(Creature creature) {
+        return creature.abilities().resolve(getAbilityMask(), ABILITY_TYPES);
+    }
+
     /**
      * Uses the communication system to resolve the ideal Ability.Type for the Attack.
      *
@@ -25,8 +39,37 @@ public abstract class AttackRoll extends Roll {
      * @return the resolved Ability.Type
      */
     public Ability.Type resolveType(Creature creature) {
-        Resolvable<Ability.Type> resolvable = new Resolvable<>(getAbilityOptions());
-        return creature.abilities().resolve(resolvable.options()).type();
+        return resolveAbility(creature).type();
+    }
+
+    /**
+     * Rolls the damage of the attack, picking the precomputed critical damage on a critical hit.
+     *
+     * @param critical whether the hit is critical
+     * @param rng the source of randomness
+     * @return the damage rolled
+     */
+    public int rollDamage(boolean critical, RandomSource rng) {
+        return damage.roll(rng, critical);
+    }
+
+    /**
+     * Returns the exact expected damage of the attack against the given armor class, counting
+     * critical hits with their dice doubled and their modifier added once. The creature's ability
+     * modifier for the attack is added to the damage of every hit, and damage below 0 counts as 0,
+     * as AttackProfile does.
+     *
+     * @param creature the Creature making the attack
+     * @param mode the mode of the attack roll
+     * @param armorClass the armor class of the target
+     * @return the expected damage per attack
+     */
+    public double expectedDamage(Creature creature, RollMode mode, int armorClass) {
+        double hit = successProbability(creature, mode, armorClass);
+        double critical = Odds.critical(mode);
+        int modifier = resolveAbility(creature).modifier();
+        return (hit - critical) * damage.distribution(false).shift(modifier).atLeastFloor(0).mean()
+                + critical * damage.distribution(true).shift(modifier).atLeastFloor(0).mean();
     }
 
     /**
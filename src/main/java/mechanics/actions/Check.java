@@ -2,7 +2,7 @@ package mechanics.actions;
 
 import game.entities.Creature;
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A Check is a Roll that is associated with a Skill.
@@ -55,7 +55,7 @@ public class Check extends Roll {
      */
     @Override
     protected int resolveBonus(Creature creature) {
-        return creature.abilities().provide(skill.ability()).modifier() + creature.getProficiency(this);
+        return creature.getSkillBonus(skill);
     }
 
     /**
@@ -109,14 +109,9 @@ public class Check extends Roll {
      * A factory class to create Check objects.
      */
     public static class Factory {
-        private static final HashMap<Skill, Check> checks = new HashMap<>();
+        private static final ConcurrentHashMap<Skill, Check> checks = new ConcurrentHashMap<>();
         public static Check create(Skill skill) {
-            Check check = checks.get(skill);
-            if (check == null) {
-                check = new Check.Builder().with(skill).build();
-                checks.put(skill, check);
-            }
-            return check;
+            return checks.computeIfAbsent(skill, key -> new Check.Builder().with(key).build());
         }
     }
 
@@ -1,7 +1,10 @@
 package mechanics.actions;
 
+import communication.Pair;
 import game.entities.Creature;
+import mechanics.Odds;
 import mechanics.RollMode;
+import mechanics.dice.RandomSource;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -42,11 +45,12 @@ public class Contest extends Roll {
      * Executes the Contest by rolling the source creature's skill check and adding the bonus
      * @param source the creature making the check
      * @param mode the mode to roll with
+     * @param rng the source of randomness
      * @return the result of the roll
      */
     @Override
-    public int execute(Creature source, RollMode mode) {
-        return rollWith(mode) + resolveBonus(source);
+    public int execute(Creature source, RollMode mode, RandomSource rng) {
+        return rollWith(mode, rng) + resolveBonus(source);
     }
 
     /**
@@ -57,8 +61,23 @@ public class Contest extends Roll {
      */
     @Override
     protected int resolveBonus(Creature source) {
-        return source.getProficiency(new Check.Builder().with(sourceSkill).build()) +
-                source.abilities().provide(sourceSkill.ability()).modifier();
+        return source.getSkillBonus(sourceSkill);
+    }
+
+    /**
+     * Determines if the source creature beats the target's roll. A tie leaves the situation as it was,
+     * so unlike other rolls the source must roll strictly higher to succeed.
+     * @param dc the target's roll to beat
+     * @param creature the creature starting the Contest
+     * @param mode the mode to roll with
+     * @param rng the source of randomness
+     * @return a pair containing a boolean indicating success and the result of the roll
+     * @see #winProbability(Creature, RollMode, Creature, RollMode)
+     */
+    @Override
+    public Pair<Boolean, Integer> success(int dc, Creature creature, RollMode mode, RandomSource rng) {
+        int roll = execute(creature, mode, rng);
+        return new Pair<>(roll > dc, roll);
     }
 
     /**
@@ -97,6 +116,51 @@ public class Contest extends Roll {
         return super.substring() + ", sourceSkill=" + sourceSkill + ", targetOptions=" + targetOptions;
     }
 
+    /**
+     * Returns the exact chance that the source wins the Contest against the target, without rolling.
+     * The target uses its best option, and a tie leaves the situation as it was, so the source
+     * must roll higher than the target to win.
+     * @param source the creature starting the Contest
+     * @param sourceMode the mode the source rolls with
+     * @param target the creature resisting the Contest
+     * @param targetMode the mode the target rolls with
+     * @return the chance that the source wins
+     * @see Odds#contest(int, RollMode, int, RollMode)
+     */
+    public double winProbability(Creature source, RollMode sourceMode, Creature target, RollMode targetMode) {
+        return Odds.contest(resolveBonus(source), sourceMode, targetBonus(target), targetMode);
+    }
+
+    /**
+     * Returns the exact chance that the Contest ends in a tie, leaving the situation as it was.
+     * @param source the creature starting the Contest
+     * @param sourceMode the mode the source rolls with
+     * @param target the creature resisting the Contest
+     * @param targetMode the mode the target rolls with
+     * @return the chance of a tie
+     */
+    public double tieProbability(Creature source, RollMode sourceMode, Creature target, RollMode targetMode) {
+        return Odds.tie(resolveBonus(source), sourceMode, targetBonus(target), targetMode);
+    }
+
+    /**
+     * Returns the skill the target creature resists the Contest with, which is its best option
+     * @param target the creature resisting the Contest
+     * @return the target option with the highest bonus
+     */
+    public Skill targetSkill(Creature target) {
+        return target.type(targetOptions.iterator());
+    }
+
+    /**
+     * Resolves the bonus of the target's best option for the Contest
+     * @param target the creature resisting the Contest
+     * @return the bonus of the target skill
+     */
+    private int targetBonus(Creature target) {
+        return target.getSkillBonus(targetSkill(target));
+    }
+
     /**
      * Returns the skill that the source creature is using to make the check
      * @return the skill that the source creature is using to make the check
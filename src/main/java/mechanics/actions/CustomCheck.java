@@ -29,6 +29,15 @@ public class CustomCheck extends Check {
         return Set.of(overrideAbility);
     }
 
+    /**
+     * Overrides the default getAbilityMask method to match the ability that the CustomCheck uses
+     * @return a bitmask with only the ability that the CustomCheck uses
+     */
+    @Override
+    public long getAbilityMask() {
+        return 1L << overrideAbility.ordinal();
+    }
+
     /**
      * Deconstructs the CustomCheck into a Builder object
      * @return a Builder object with the CustomCheck's parameters
@@ -71,6 +80,7 @@ public class CustomCheck extends Check {
          */
         @Override
         public CustomCheck build() {
+            super.with(Roll.Type.CHECK);
             return new CustomCheck(this);
         }
     }
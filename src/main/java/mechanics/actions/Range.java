@@ -171,4 +171,14 @@ public class Range implements Serializable {
         }
         return false;
     }
+
+    /**
+     * Returns the hash of the Range, consistent with equals.
+     *
+     * @return the hash of the Range
+     */
+    @Override
+    public int hashCode() {
+        return 31 * shortRange + longRange.hashCode();
+    }
 }
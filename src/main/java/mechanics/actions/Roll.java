@@ -1,11 +1,14 @@
 package mechanics.actions;
 
 import communication.Pair;
+import communication.Resolvable;
 import game.entities.Creature;
 import mechanics.Construct;
 import mechanics.Constructor;
+import mechanics.Odds;
 import mechanics.RollMode;
 import mechanics.dice.Die;
+import mechanics.dice.RandomSource;
 import mechanics.dice.Rollable;
 import game.entities.Ability;
 
@@ -28,6 +31,8 @@ public abstract class Roll implements Rollable, Construct, Serializable {
     private static final Die d20 = Die.Factory.d20();
     // The set of abilities that can be used for the roll
     private Set<Ability.Type> abilityOptions;
+    // The ability options as a bitmask over their ordinals, kept in step with the set
+    private long abilityMask;
     // The type of roll that is being made
     private final Type rollType;
 
@@ -38,6 +43,7 @@ public abstract class Roll implements Rollable, Construct, Serializable {
      */
     public Roll(Builder builder) {
         this.abilityOptions = builder.abilities;
+        this.abilityMask = Resolvable.mask(abilityOptions);
         this.rollType = builder.type;
         if (this.rollType == null) {
             throw new IllegalArgumentException("Roll type cannot be null");
@@ -45,36 +51,37 @@ public abstract class Roll implements Rollable, Construct, Serializable {
     }
 
     /**
-     * Roll is considered a Rollable, but does not implement the constant field,
-     * unlike the Damage or Sequence classes.
+     * Rolls the 20-sided die with the given source of randomness and returns the result.
      *
-     * @param constant The constant value to be ignored
-     * @throws UnsupportedOperationException Throws an exception because rolls cannot have constants
+     * @param rng The source of randomness
+     * @return The result of the roll
      */
     @Override
-    public void setConstant(int constant) {
-        throw new UnsupportedOperationException("Rolls cannot have constants");
+    public int roll(RandomSource rng) {
+        return d20.roll(rng);
     }
 
     /**
-     * Rolls the 20-sided die and returns the result.
+     * All-encompassing method to execute a roll
      *
+     * @param creature The relevant creature object
+     * @param mode The mode of the roll
      * @return The result of the roll
      */
-    @Override
-    public int roll() {
-        return d20.roll();
+    public int execute(Creature creature, RollMode mode) {
+        return execute(creature, mode, RandomSource.DEFAULT);
     }
 
     /**
-     * All-encompassing method to execute a roll
+     * All-encompassing method to execute a roll with the given source of randomness
      *
      * @param creature The relevant creature object
      * @param mode The mode of the roll
+     * @param rng The source of randomness
      * @return The result of the roll
      */
-    public int execute(Creature creature, RollMode mode) {
-        return rollWith(mode) + resolveBonus(creature);
+    public int execute(Creature creature, RollMode mode, RandomSource rng) {
+        return rollWith(mode, rng) + resolveBonus(creature);
     }
 
     /**
@@ -84,6 +91,17 @@ public abstract class Roll implements Rollable, Construct, Serializable {
      */
     protected abstract int resolveBonus(Creature creature);
 
+    /**
+     * Returns the bonus the given creature adds to the roll.
+     * The bonus does not change from one roll to the next, so callers rolling many times can resolve it once.
+     *
+     * @param creature The relevant creature object
+     * @return The bonus for the roll
+     */
+    public int bonus(Creature creature) {
+        return resolveBonus(creature);
+    }
+
     /**
      * Rolls the 20-sided die and returns the result based on the given mode.
      *
@@ -91,10 +109,21 @@ public abstract class Roll implements Rollable, Construct, Serializable {
      * @return The result of the roll
      */
     public int rollWith(RollMode mode) {
+        return rollWith(mode, RandomSource.DEFAULT);
+    }
+
+    /**
+     * Rolls the 20-sided die with the given source of randomness and returns the result based on the given mode.
+     *
+     * @param mode The mode of the roll (STRAIGHT, ADVANTAGE, or DISADVANTAGE)
+     * @param rng The source of randomness
+     * @return The result of the roll
+     */
+    public int rollWith(RollMode mode, RandomSource rng) {
         return switch (mode) {
-            case STRAIGHT -> roll();
-            case ADVANTAGE -> Math.max(roll(), roll());
-            case DISADVANTAGE -> Math.min(roll(), roll());
+            case STRAIGHT -> roll(rng);
+            case ADVANTAGE -> Math.max(roll(rng), roll(rng));
+            case DISADVANTAGE -> Math.min(roll(rng), roll(rng));
         };
     }
 
@@ -126,6 +155,17 @@ public abstract class Roll implements Rollable, Construct, Serializable {
      */
     public void setAbilityOptions(Set<Ability.Type> abilityOptions) {
         this.abilityOptions = abilityOptions;
+        this.abilityMask = Resolvable.mask(abilityOptions);
+    }
+
+    /**
+     * Returns the ability options for the roll as a bitmask, precomputed so that choosing between them
+     * does not allocate.
+     *
+     * @return The bitmask of the ability options, where bit i stands for the ability with ordinal i
+     */
+    public long getAbilityMask() {
+        return abilityMask;
     }
 
     /**
@@ -137,8 +177,64 @@ public abstract class Roll implements Rollable, Construct, Serializable {
      * @return A pair containing a boolean indicating success and the result of the roll
      */
     public Pair<Boolean, Integer> success(int dc, Creature creature, RollMode mode) {
-        int roll = execute(creature, mode);
-        return new Pair<>(roll >= dc, roll);
+        return success(dc, creature, mode, RandomSource.DEFAULT);
+    }
+
+    /**
+     * Determines if the roll was successful based on the given DC and creature object,
+     * rolling with the given source of randomness. Attack rolls follow the natural 1 and natural 20 rules.
+     *
+     * @param dc The DC for the roll
+     * @param creature The relevant creature object
+     * @param mode The mode of the roll
+     * @param rng The source of randomness
+     * @return A pair containing a boolean indicating success and the result of the roll
+     */
+    public Pair<Boolean, Integer> success(int dc, Creature creature, RollMode mode, RandomSource rng) {
+        int natural = rollWith(mode, rng);
+        int roll = natural + resolveBonus(creature);
+        return new Pair<>(succeeds(natural, roll, dc), roll);
+    }
+
+    /**
+     * Determines if a roll meets the DC. Attack rolls follow the natural 1 and natural 20 rules:
+     * a 1 on the d20 always misses and a 20 always hits, whatever the total.
+     *
+     * @param natural The result of the d20 alone
+     * @param total The result of the d20 plus the bonus
+     * @param dc The DC, or AC for attacks, to meet
+     * @return Whether the roll succeeds
+     */
+    public boolean succeeds(int natural, int total, int dc) {
+        if (rollType == Type.ATTACK && (natural == 1 || natural == 20))
+            return natural == 20;
+        return total >= dc;
+    }
+
+    /**
+     * Returns the exact chance that the creature meets the DC with this roll, without rolling.
+     * Attack rolls follow the natural 1 and natural 20 rules.
+     *
+     * @param creature The relevant creature object
+     * @param mode The mode of the roll
+     * @param dc The DC, or AC for attacks, to meet
+     * @return The chance of success, between 0 and 1
+     * @see Odds#success(int, RollMode, int, boolean)
+     */
+    public double successProbability(Creature creature, RollMode mode, int dc) {
+        return Odds.success(resolveBonus(creature), mode, dc, rollType == Type.ATTACK);
+    }
+
+    /**
+     * Returns the exact chance that the creature succeeds with this roll against every DC from 0 to 30.
+     *
+     * @param creature The relevant creature object
+     * @param mode The mode of the roll
+     * @return The chance of success, indexed by DC
+     * @see Odds#table(int, RollMode, boolean)
+     */
+    public double[] successTable(Creature creature, RollMode mode) {
+        return Odds.table(resolveBonus(creature), mode, rollType == Type.ATTACK);
     }
 
     /**
@@ -1,10 +1,10 @@
 package mechanics.actions;
 
 import communication.Pair;
-import communication.Resolvable;
 import game.entities.Ability;
 import game.entities.Creature;
 import mechanics.RollMode;
+import mechanics.dice.RandomSource;
 
 import java.util.Optional;
 
@@ -51,8 +51,10 @@ public class RollCommand {
      */
     public RollCommand attach(Creature source) {
         this.source = source;
-        sourceAbility = Optional.of(new Resolvable<>(roll.getAbilityOptions())
-                .resolve(source.abilities()).type());
+        if (roll instanceof WeaponAttack attack)
+            sourceAbility = Optional.of(source.profile(attack).ability());
+        else
+            sourceAbility = Optional.of(source.abilities().type(roll.getAbilityMask()));
         return this;
     }
 
@@ -63,6 +65,18 @@ public class RollCommand {
      * @return whether the roll was successful for the source Creature
      */
     public boolean sendTo(Creature target) {
+        return sendTo(target, RandomSource.DEFAULT);
+    }
+
+    /**
+     * Sends the RollCommand to the target Creature and determines the outcome of the roll,
+     * rolling with the given source of randomness.
+     *
+     * @param target the target Creature
+     * @param rng the source of randomness
+     * @return whether the roll was successful for the source Creature
+     */
+    public boolean sendTo(Creature target, RandomSource rng) {
         // TODO: Add functionality for arbitrary set DCs
         if (requireSource && source == null)
             throw new IllegalStateException("Source is required");
@@ -88,14 +102,14 @@ public class RollCommand {
             creature = target;
             setToTarget = true;
         } else if (roll instanceof Contest contest) {
-            dc = targetValue = target.check(target.type(contest.getTargetOptions().iterator()), mode);
+            dc = targetValue = target.check(contest.targetSkill(target), mode, rng);
             creature = source;
             setToTarget = false;
         } else {
             throw new IllegalArgumentException("Roll type not recognized");
         }
         sent = true;
-        Pair<Boolean, Integer> result = roll.success(dc, creature, mode);
+        Pair<Boolean, Integer> result = roll.success(dc, creature, mode, rng);
         success = result.key();
         if (setToTarget)
             targetValue = result.value();
@@ -3,14 +3,22 @@ package mechanics.actions;
 import game.entities.Ability;
 import game.entities.AbilityContour;
 import game.entities.Creature;
+import game.entities.CreatureStore;
+import game.entities.ProficiencyProfile;
 import game.items.Weapon;
 import mechanics.Proficiency;
+import mechanics.Odds;
+import mechanics.RollMode;
+import mechanics.Simulation;
 import mechanics.dice.Damage;
+import mechanics.dice.DamagePacket;
 import mechanics.dice.Die;
+import mechanics.dice.RandomSource;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
 import java.util.Set;
 
 public class RollTests {
@@ -146,4 +154,324 @@ public class RollTests {
                 .build();
         Assertions.assertEquals(contest, newContest);
     }
+
+    @Test
+    public void testSeededRollCommand() {
+        RollCommand first = new RollCommand(save).attach(creature1);
+        RollCommand second = new RollCommand(save).attach(creature1);
+        RandomSource rng1 = RandomSource.seeded(7);
+        RandomSource rng2 = RandomSource.seeded(7);
+        for (int i = 0; i < 50; i++) {
+            Assertions.assertEquals(first.sendTo(creature2, rng1), second.sendTo(creature2, rng2));
+            Assertions.assertEquals(first, second);
+        }
+        Assertions.assertEquals(meleeAttack.rollWith(RollMode.ADVANTAGE, RandomSource.seeded(3)),
+                meleeAttack.rollWith(RollMode.ADVANTAGE, RandomSource.seeded(3)));
+    }
+
+    @Test
+    public void testSimulation() {
+        // creature1 saves with +1 against DC 12, so needs an 11 on the d20
+        Simulation simulation = new Simulation.Builder()
+                .with(save, creature1, RollMode.STRAIGHT)
+                .against(12)
+                .trials(400_000)
+                .seed(5)
+                .build();
+        Simulation.Result result = simulation.run();
+        Assertions.assertEquals(400_000, result.trials());
+        Assertions.assertEquals(2, result.min());
+        Assertions.assertEquals(21, result.max());
+        double[] interval = result.successInterval(4);
+        Assertions.assertTrue(interval[0] < 0.5 && 0.5 < interval[1]);
+        interval = result.confidenceInterval(4);
+        Assertions.assertTrue(interval[0] < 11.5 && 11.5 < interval[1]);
+        Assertions.assertEquals(11, result.percentile(0.5));
+        Assertions.assertEquals(result.mean(), simulation.run().mean());
+
+        // Attacks follow the natural 1 and natural 20 rules whether simulated or computed exactly
+        for (int armorClass : new int[]{2, 25}) {
+            Simulation.Result attacks = new Simulation.Builder()
+                    .with(rangedAttack, creature1, RollMode.STRAIGHT)
+                    .against(armorClass)
+                    .trials(400_000)
+                    .seed(7)
+                    .build()
+                    .run();
+            double exact = rangedAttack.successProbability(creature1, RollMode.STRAIGHT, armorClass);
+            interval = attacks.successInterval(4);
+            Assertions.assertTrue(interval[0] < exact && exact < interval[1]);
+        }
+        Assertions.assertEquals(0.95, rangedAttack.successProbability(creature1, RollMode.STRAIGHT, 2), 1e-12);
+        Assertions.assertEquals(0.05, rangedAttack.successProbability(creature1, RollMode.STRAIGHT, 25), 1e-12);
+        Assertions.assertTrue(rangedAttack.succeeds(20, 24, 25));
+        Assertions.assertFalse(rangedAttack.succeeds(1, 5, 2));
+        Assertions.assertTrue(save.succeeds(1, 2, 2));
+
+        Simulation.Result dice = new Simulation.Builder()
+                .with(Die.Factory.parse("2d6"))
+                .trials(100_000)
+                .build()
+                .run();
+        Assertions.assertEquals(7, dice.mean(), 0.05);
+        Assertions.assertEquals(35.0 / 6, dice.variance(), 0.1);
+        Assertions.assertEquals(1.0 / 6, dice.probability(7), 0.01);
+        Assertions.assertEquals(1, dice.atLeast(2));
+        Assertions.assertThrows(IllegalStateException.class, dice::successRate);
+    }
+
+    @Test
+    public void testSuccessProbability() {
+        // creature1 saves with +1 against DC 12, so needs an 11 on the d20
+        Assertions.assertEquals(0.5, save.successProbability(creature1, RollMode.STRAIGHT, 12), 1e-12);
+        Assertions.assertEquals(0.75, save.successProbability(creature1, RollMode.ADVANTAGE, 12), 1e-12);
+        Assertions.assertEquals(0.25, save.successProbability(creature1, RollMode.DISADVANTAGE, 12), 1e-12);
+        Assertions.assertEquals(0, save.successProbability(creature1, RollMode.STRAIGHT, 30));
+        Assertions.assertEquals(1, save.successProbability(creature1, RollMode.STRAIGHT, 1));
+
+        // Natural 1s always miss and natural 20s always hit
+        Assertions.assertEquals(0.05, rangedAttack.successProbability(creature1, RollMode.STRAIGHT, 30), 1e-12);
+        Assertions.assertEquals(0.95, rangedAttack.successProbability(creature1, RollMode.STRAIGHT, 1), 1e-12);
+        Assertions.assertEquals(1 - 0.95 * 0.95,
+                rangedAttack.successProbability(creature1, RollMode.ADVANTAGE, 30), 1e-12);
+
+        double[] table = save.successTable(creature1, RollMode.STRAIGHT);
+        Assertions.assertEquals(31, table.length);
+        for (int dc = 0; dc < table.length; dc++)
+            Assertions.assertEquals(save.successProbability(creature1, RollMode.STRAIGHT, dc), table[dc]);
+        table[12] = -1;
+        Assertions.assertEquals(0.5, save.successTable(creature1, RollMode.STRAIGHT)[12], 1e-12);
+    }
+
+    @Test
+    public void testContestProbability() {
+        // Evenly matched straight rolls tie one time in twenty and split the rest
+        Assertions.assertEquals(0.05, Odds.tie(3, RollMode.STRAIGHT, 3, RollMode.STRAIGHT), 1e-12);
+        Assertions.assertEquals(0.475, Odds.contest(3, RollMode.STRAIGHT, 3, RollMode.STRAIGHT), 1e-12);
+        Assertions.assertEquals(0, Odds.contest(0, RollMode.ADVANTAGE, 19, RollMode.STRAIGHT), 1e-12);
+        Assertions.assertEquals(1, Odds.contest(20, RollMode.DISADVANTAGE, 0, RollMode.ADVANTAGE), 1e-12);
+        Assertions.assertTrue(Odds.contest(0, RollMode.ADVANTAGE, 0, RollMode.STRAIGHT)
+                > Odds.contest(0, RollMode.STRAIGHT, 0, RollMode.STRAIGHT));
+
+        double win = contest.winProbability(creature1, RollMode.STRAIGHT, creature2, RollMode.STRAIGHT);
+        double tie = contest.tieProbability(creature1, RollMode.STRAIGHT, creature2, RollMode.STRAIGHT);
+        double lose = new Contest.Builder()
+                .with(Skill.ACROBATICS)
+                .against(Skill.ATHLETICS)
+                .build()
+                .winProbability(creature2, RollMode.STRAIGHT, creature1, RollMode.STRAIGHT);
+        Assertions.assertTrue(win > 0 && win < 1);
+        Assertions.assertTrue(lose <= 1 - win - tie + 1e-12);
+
+        // Rolled contests break ties the same way as the exact odds, against the same target skill
+        Assertions.assertEquals(Skill.ACROBATICS, contest.targetSkill(creature2));
+        RandomSource rng = RandomSource.seeded(10);
+        RollCommand command = new RollCommand(contest).attach(creature1);
+        int trials = 40000, wins = 0;
+        for (int i = 0; i < trials; i++)
+            if (command.sendTo(creature2, rng))
+                wins++;
+        Assertions.assertEquals(win, (double) wins / trials, 0.01);
+    }
+
+    @Test
+    public void testCriticalDamage() {
+        Damage damage = Damage.parse("1d8 + 3 slashing");
+        Assertions.assertSame(damage.critical(), damage.critical());
+        Assertions.assertEquals(7.5, damage.distribution(false).mean(), 1e-9);
+        Assertions.assertEquals(12, damage.distribution(true).mean(), 1e-9);
+        Assertions.assertEquals(5, damage.distribution(true).min());
+        Assertions.assertEquals(damage.critical().compile(), damage.compile().critical());
+
+        // Flat bonuses of nested damage are added once on a critical hit, not doubled
+        Damage nested = new Damage.Builder().with(Damage.parse("1d6 + 2 fire")).with(Die.Factory.d4())
+                .with(1).with(Damage.Type.FIRE).build();
+        Assertions.assertEquals(nested.critical().compile(), nested.compile().critical());
+        Assertions.assertEquals(3, nested.critical().rollAfter());
+
+        // meleeAttack deals 2d6 + 2 for Strength 15: 9 on a hit and 16 on a critical hit
+        int bonus = meleeAttack.bonus(creature1);
+        int armorClass = bonus + 11;
+        double expected = (0.5 - 0.05) * 9 + 0.05 * 16;
+        Assertions.assertEquals(expected, meleeAttack.expectedDamage(creature1, RollMode.STRAIGHT, armorClass), 1e-9);
+        Assertions.assertEquals(AttackProfile.of(creature1, meleeAttack)
+                .expectedDamage(armorClass, RollMode.STRAIGHT), expected, 1e-9);
+        // A penalty cannot push the damage of a hit below 0
+        Creature clumsy = new Creature(new AbilityContour(new int[]{10, 4, 10, 10, 10, 10}), 10, "Clumsy");
+        Assertions.assertEquals(0.35 * 1 + 0.05 * (4 + 1.0 / 36),
+                rangedAttack.expectedDamage(clumsy, RollMode.STRAIGHT, 10), 1e-9);
+        Assertions.assertEquals(clumsy.profile(rangedAttack).expectedDamage(10, RollMode.STRAIGHT),
+                rangedAttack.expectedDamage(clumsy, RollMode.STRAIGHT, 10), 1e-9);
+        int roll = meleeAttack.rollDamage(true, RandomSource.seeded(1));
+        Assertions.assertTrue(roll >= 4 && roll <= 24);
+    }
+
+    @Test
+    public void testSaveBatch() {
+        // creature1 saves with +1 against DC 12, so half of the targets should save
+        Creature[] targets = new Creature[4000];
+        for (int i = 0; i < targets.length; i++)
+            targets[i] = new Creature(new AbilityContour(new int[]{15, 14, 13, 12, 10, 8}), 12, "Target " + i)
+                    .withHitPoints(50);
+        targets[0].addImmunity(Damage.Type.FIRE);
+        SaveBatch batch = new SaveBatch(save, targets);
+        Assertions.assertEquals(4000, batch.size());
+
+        boolean[] saved = batch.saves(12, RollMode.STRAIGHT, RandomSource.seeded(4));
+        int successes = 0;
+        for (boolean success : saved)
+            successes += success ? 1 : 0;
+        Assertions.assertEquals(0.5, successes / 4000.0, 0.05);
+
+        int[] lost = batch.apply(DamagePacket.of(Damage.parse("21 fire")), 12, RollMode.STRAIGHT, true,
+                RandomSource.seeded(4));
+        Assertions.assertEquals(0, lost[0]);
+        for (int i = 1; i < targets.length; i++) {
+            Assertions.assertEquals(saved[i] ? 10 : 21, lost[i]);
+            Assertions.assertEquals(50 - lost[i], targets[i].getHitPoints());
+        }
+
+        // Half of 3 fire and 3 cold is half of the total 6, not 1 of each
+        Creature target = new Creature(new AbilityContour(new int[]{10, 10, 10, 10, 10, 10}), 10, "Target")
+                .withHitPoints(50);
+        int[] halved = new SaveBatch(save, target).apply(DamagePacket.of(Damage.parse("3 fire"),
+                Damage.parse("3 cold")), 1, RollMode.STRAIGHT, true, RandomSource.seeded(4));
+        Assertions.assertEquals(3, halved[0]);
+    }
+
+    @Test
+    public void testAttackProfile() {
+        Creature fighter = new Creature(new AbilityContour(new int[]{16, 12, 14, 10, 10, 10}), 16, "Fighter");
+        AttackProfile profile = fighter.profile(meleeAttack);
+        Assertions.assertSame(profile, fighter.profile(meleeAttack));
+        Assertions.assertEquals(Ability.Type.STR, profile.ability());
+        Assertions.assertEquals(3, profile.toHit());
+        Assertions.assertEquals(3, meleeAttack.bonus(fighter));
+        Assertions.assertEquals("2d6 + 3", profile.damage().display());
+        Assertions.assertEquals("4d6 + 3", profile.criticalDamage().display());
+
+        fighter.addWeaponGroup(Weapon.Group.MARTIAL, Proficiency.PROFICIENT);
+        Assertions.assertFalse(profile.isCurrent());
+        AttackProfile proficient = fighter.profile(meleeAttack);
+        Assertions.assertTrue(proficient.isCurrent());
+        Assertions.assertEquals(5, proficient.toHit());
+
+        // Needs a 10 to hit AC 15, and crits on a 20
+        Assertions.assertEquals(0.55, proficient.hitProbability(15, RollMode.STRAIGHT), 1e-12);
+        Assertions.assertEquals(0.05, proficient.hitProbability(40, RollMode.STRAIGHT), 1e-12);
+        Assertions.assertEquals(0.5 * 10 + 0.05 * 17, proficient.expectedDamage(15, RollMode.STRAIGHT), 1e-9);
+        // Damage pushed below 0 by a penalty counts as 0, as when the attack is made
+        AttackProfile clumsy = new Creature(new AbilityContour(new int[]{10, 4, 10, 10, 10, 10}), 10, "Clumsy")
+                .profile(rangedAttack);
+        Assertions.assertEquals(0.35 * 1 + 0.05 * (4 + 1.0 / 36), clumsy.expectedDamage(10, RollMode.STRAIGHT), 1e-9);
+        AttackProfile champion = proficient.withCriticalRange(19);
+        Assertions.assertEquals(0.1, champion.criticalProbability(RollMode.STRAIGHT), 1e-12);
+        Assertions.assertEquals(0.1, champion.hitProbability(40, RollMode.STRAIGHT), 1e-12);
+
+        RandomSource rng = RandomSource.seeded(6);
+        for (int i = 0; i < 1000; i++) {
+            int damage = proficient.attack(15, RollMode.STRAIGHT, rng);
+            Assertions.assertTrue(damage == 0 || (damage >= 5 && damage <= 27));
+        }
+    }
+
+    @Test
+    public void testDerivedStats() {
+        Creature rogue = new Creature(new AbilityContour(new int[]{8, 16, 12, 14, 13, 10}), 14, "Rogue");
+        Assertions.assertEquals(3, rogue.getSkillBonus(Skill.STEALTH));
+        Assertions.assertEquals(11, rogue.getPassive(Skill.PERCEPTION));
+        Assertions.assertEquals(13, rogue.getDC(Ability.Type.DEX));
+        Assertions.assertEquals(Skill.STEALTH, rogue.type(List.of(Skill.ATHLETICS, Skill.STEALTH).iterator()));
+
+        rogue.addSkill(Skill.STEALTH, Proficiency.EXPERTISE).addSkill(Skill.ATHLETICS, Proficiency.EXPERTISE)
+                .addSave(Ability.Type.DEX, Proficiency.PROFICIENT);
+        Assertions.assertEquals(7, rogue.getSkillBonus(Skill.STEALTH));
+        Assertions.assertEquals(4, rogue.getProficiency(Skill.STEALTH));
+        Assertions.assertEquals(7, rogue.getBonus(Check.Factory.create(Skill.STEALTH)));
+        Assertions.assertEquals(5, rogue.getSaveBonus(Ability.Type.DEX));
+        Assertions.assertEquals(5, rogue.getBonus(Save.Factory.create(Ability.Type.DEX, Save.Descriptor.MAGICAL)));
+        Assertions.assertEquals(Skill.STEALTH, rogue.resolve(List.of(Skill.ATHLETICS, Skill.STEALTH).iterator()).type());
+
+        rogue.setAbilities(new AbilityContour(new int[]{18, 16, 12, 14, 13, 10})).setProficiencyBonus(3);
+        Assertions.assertEquals(10, rogue.getSkillBonus(Skill.ATHLETICS));
+        Assertions.assertEquals(9, rogue.getSkillBonus(Skill.STEALTH));
+        Assertions.assertEquals(14, rogue.getDC(Ability.Type.DEX));
+        Assertions.assertEquals(Skill.ATHLETICS, rogue.type(List.of(Skill.STEALTH, Skill.ATHLETICS).iterator()));
+
+        // A custom check uses its own ability with the skill's proficiency
+        Creature scholar = new Creature(new AbilityContour(new int[]{10, 10, 10, 20, 10, 10}), 10, "Scholar");
+        CustomCheck ropeTying = new CustomCheck.Builder().with(Ability.Type.INT).with(Skill.SLEIGHT_OF_HAND).build();
+        Assertions.assertEquals(5, scholar.getBonus(ropeTying));
+        scholar.addSkill(Skill.SLEIGHT_OF_HAND, Proficiency.PROFICIENT);
+        Assertions.assertEquals(7, scholar.getBonus(ropeTying));
+        Assertions.assertEquals(2, scholar.getSkillBonus(Skill.SLEIGHT_OF_HAND));
+    }
+
+    @Test
+    public void testProficiencyProfile() {
+        ProficiencyProfile profile = ProficiencyProfile.EMPTY.with(Skill.SURVIVAL, Proficiency.EXPERTISE)
+                .with(Skill.ACROBATICS, Proficiency.NONE).with(Ability.Type.CHA, Proficiency.PROFICIENT)
+                .with(Weapon.Group.IMPROVISED, Proficiency.PROFICIENT);
+        Assertions.assertEquals(Proficiency.EXPERTISE, profile.get(Skill.SURVIVAL));
+        Assertions.assertEquals(6, profile.bonus(Skill.SURVIVAL, 3));
+        Assertions.assertTrue(profile.has(Skill.ACROBATICS));
+        Assertions.assertEquals(0, profile.bonus(Skill.ACROBATICS, 3));
+        Assertions.assertFalse(profile.has(Skill.STEALTH));
+        Assertions.assertEquals(Proficiency.NONE, profile.get(Skill.STEALTH));
+        Assertions.assertEquals(Proficiency.PROFICIENT, profile.get(Ability.Type.CHA));
+        Assertions.assertFalse(profile.has(Weapon.Group.SIMPLE));
+        Assertions.assertEquals(2, profile.bonus(Weapon.Group.IMPROVISED, 2));
+        Assertions.assertEquals(profile, ProficiencyProfile.of(profile.skills(), profile.others()));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ProficiencyProfile.of(-1L, 0));
+
+        Creature scout = new Creature(new AbilityContour(), 13, "Scout").setProficiencies(profile);
+        Assertions.assertTrue(scout.isProficient(Check.Factory.create(Skill.ACROBATICS)));
+        Assertions.assertFalse(scout.isProficient(Save.Factory.create(Ability.Type.STR, Save.Descriptor.MAGICAL)));
+        Assertions.assertEquals(4, scout.getSkillBonus(Skill.SURVIVAL));
+        scout.addSkill(Skill.SURVIVAL, Proficiency.PROFICIENT);
+        Assertions.assertEquals(2, scout.getSkillBonus(Skill.SURVIVAL));
+        Assertions.assertEquals(Proficiency.EXPERTISE, profile.get(Skill.SURVIVAL));
+    }
+
+    @Test
+    public void testCreatureStore() {
+        CreatureStore store = new CreatureStore(2);
+        AbilityContour goblin = new AbilityContour(new int[]{8, 14, 10, 10, 8, 8});
+        for (int i = 0; i < 100; i++)
+            store.setHitPoints(store.add(goblin, 15, "Goblin " + i), 7);
+        Assertions.assertEquals(100, store.size());
+        Assertions.assertEquals(2, store.modifier(42, Ability.Type.DEX));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> store.armorClass(100));
+
+        Creature view = store.view(42);
+        Assertions.assertSame(view, store.view(42));
+        Assertions.assertEquals("Goblin 42", view.getName());
+        Assertions.assertEquals(14, view.abilities().score(Ability.Type.DEX));
+        view.addSkill(Skill.STEALTH, Proficiency.EXPERTISE);
+        Assertions.assertEquals(6, view.getSkillBonus(Skill.STEALTH));
+        Assertions.assertTrue(store.proficiencies(42).has(Skill.STEALTH));
+        Assertions.assertFalse(store.proficiencies(41).has(Skill.STEALTH));
+
+        // Writes through the store are seen by the view
+        store.setProficiencyBonus(42, 3);
+        Assertions.assertEquals(8, view.getSkillBonus(Skill.STEALTH));
+        view.addResistance(Damage.Type.FIRE);
+        Assertions.assertEquals(3, view.resolve(new int[]{0, 0, 0, 7}, Damage.Type.FIRE.bit(), 7));
+
+        Assertions.assertEquals(5 * 100, store.takeDamage(5));
+        Assertions.assertEquals(2, view.getHitPoints());
+        Assertions.assertEquals(2, view.takeDamage(10));
+        Assertions.assertEquals(99, store.living());
+
+        int copy = store.copy(store, 42);
+        Assertions.assertEquals(8, store.view(copy).getSkillBonus(Skill.STEALTH));
+        Assertions.assertEquals(0, store.view(copy).getHitPoints());
+        int[] modifiers = new int[store.size()];
+        store.modifiers(Ability.Type.STR, modifiers);
+        Assertions.assertEquals(-1, modifiers[copy]);
+
+        Creature single = new Creature(goblin, 15, "Boss");
+        Assertions.assertSame(single, single.store().view(single.handle()));
+        Assertions.assertSame(goblin, single.abilities());
+    }
 }
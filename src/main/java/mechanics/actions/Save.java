@@ -4,7 +4,7 @@ import game.entities.Creature;
 import mechanics.Construct;
 import game.entities.Ability;
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A Save is a Roll that is made by a Creature to resist an effect.
@@ -55,7 +55,7 @@ public class Save extends Roll implements Construct {
      */
     @Override
     protected int resolveBonus(Creature creature) {
-        return creature.abilities().provide(ability()).modifier() + creature.getProficiency(this);
+        return creature.getSaveBonus(ability());
     }
 
     /**
@@ -94,15 +94,10 @@ public class Save extends Roll implements Construct {
      * A Flyweight Factory for creating Saves.
      */
     public static class Factory {
-        private static HashMap<String, Save> saves = new HashMap<>();
+        private static final ConcurrentHashMap<String, Save> saves = new ConcurrentHashMap<>();
         public static Save create(Ability.Type type, Descriptor saveDescriptor) {
             String key = type.name() + "_" + saveDescriptor.name();
-            Save save = saves.get(key);
-            if (save == null) {
-                save = new Save.Builder().with(type).with(saveDescriptor).build();
-                saves.put(key, save);
-            }
-            return save;
+            return saves.computeIfAbsent(key, k -> new Save.Builder().with(type).with(saveDescriptor).build());
         }
     }
 
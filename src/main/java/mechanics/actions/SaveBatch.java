@@ -0,0 +1,132 @@
+package mechanics.actions;
+
+import game.entities.Creature;
+import mechanics.RollMode;
+import mechanics.dice.DamagePacket;
+import mechanics.dice.Die;
+import mechanics.dice.RandomSource;
+
+/**
+ * Resolves one Save for many creatures at once, such as every target of a Fireball.
+ * The creatures' save bonuses are gathered into an array when the batch is made, the d20s are rolled in bulk,
+ * and the saves and damage of every target are worked out in passes over primitive arrays.
+ */
+public final class SaveBatch {
+    private static final Die d20 = Die.Factory.d20();
+
+    private final Save save;
+    private final Creature[] creatures;
+    // bonuses[i] is the save bonus of creatures[i]
+    private final int[] bonuses;
+
+    /**
+     * Gathers the save bonuses of the given creatures.
+     * Bonuses are read once, so a batch should be made after the creatures are set up.
+     * @param save the Save the creatures make
+     * @param creatures the creatures making the Save
+     */
+    public SaveBatch(Save save, Creature... creatures) {
+        this.save = save;
+        this.creatures = creatures.clone();
+        this.bonuses = new int[creatures.length];
+        for (int i = 0; i < creatures.length; i++)
+            bonuses[i] = save.bonus(creatures[i]);
+    }
+
+    /**
+     * Rolls the Save for every creature against the DC.
+     * @param dc the DC of the Save
+     * @param mode the mode every creature rolls with
+     * @param rng the source of randomness
+     * @return whether each creature saved, in the order of the creatures
+     */
+    public boolean[] saves(int dc, RollMode mode, RandomSource rng) {
+        int[] rolls = rolls(mode, rng);
+        boolean[] saved = new boolean[rolls.length];
+        for (int i = 0; i < rolls.length; i++)
+            saved[i] = rolls[i] + bonuses[i] >= dc;
+        return saved;
+    }
+
+    /**
+     * Rolls the damage once and applies it to every creature after its Save: full damage on a failure,
+     * and half or none on a success. Halving rounds the total down, as the rules do, and splits it across the
+     * damage types before resistances: each type keeps half of its own damage, and the points lost to rounding
+     * odd types go back to those types in ordinal order.
+     * @param packet the damage of the effect
+     * @param dc the DC of the Save
+     * @param mode the mode every creature rolls with
+     * @param halfOnSave whether a successful Save takes half damage rather than none
+     * @param rng the source of randomness
+     * @return the hit points each creature lost, in the order of the creatures
+     */
+    public int[] apply(DamagePacket packet, int dc, RollMode mode, boolean halfOnSave, RandomSource rng) {
+        int[] full = new int[DamagePacket.TYPES];
+        int total = packet.rollInto(rng, false, full);
+        int[] half = new int[DamagePacket.TYPES];
+        int halfTotal = 0;
+        if (halfOnSave) {
+            halfTotal = total >> 1;
+            int split = 0;
+            for (int i = 0; i < half.length; i++) {
+                half[i] = full[i] >> 1;
+                split += half[i];
+            }
+            for (int i = 0; split < halfTotal; i++) {
+                if ((full[i] & 1) != 0) {
+                    half[i]++;
+                    split++;
+                }
+            }
+        }
+        int types = packet.types();
+        boolean[] saved = saves(dc, mode, rng);
+        int[] lost = new int[creatures.length];
+        for (int i = 0; i < creatures.length; i++) {
+            Creature creature = creatures[i];
+            int taken = saved[i] ? creature.resolve(half, types, halfTotal) : creature.resolve(full, types, total);
+            lost[i] = creature.takeDamage(taken);
+        }
+        return lost;
+    }
+
+    /**
+     * Rolls a d20 for every creature in bulk, keeping the better or worse of two for advantage or disadvantage.
+     * @param mode the mode every creature rolls with
+     * @param rng the source of randomness
+     * @return the d20 of each creature
+     */
+    private int[] rolls(RollMode mode, RandomSource rng) {
+        int n = creatures.length;
+        int[] rolls = new int[n];
+        d20.rollInto(rolls, 0, n, rng);
+        if (mode != RollMode.STRAIGHT) {
+            int[] second = new int[n];
+            d20.rollInto(second, 0, n, rng);
+            if (mode == RollMode.ADVANTAGE) {
+                for (int i = 0; i < n; i++)
+                    rolls[i] = Math.max(rolls[i], second[i]);
+            } else {
+                for (int i = 0; i < n; i++)
+                    rolls[i] = Math.min(rolls[i], second[i]);
+            }
+        }
+        return rolls;
+    }
+
+    /**
+     * Returns the Save the creatures make.
+     * @return the Save of the batch
+     */
+    public Save getSave() {
+        return save;
+    }
+
+    /**
+     * Returns the number of creatures in the batch.
+     * @return the number of creatures
+     */
+    public int size() {
+        return creatures.length;
+    }
+}
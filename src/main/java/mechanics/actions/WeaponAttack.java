@@ -1,6 +1,5 @@
 package mechanics.actions;
 
-import communication.Resolvable;
 import game.entities.Ability;
 import game.entities.Creature;
 import game.items.Weapon;
@@ -92,9 +91,15 @@ public class WeaponAttack extends AttackRoll {
     }
 
 
+    /**
+     * Resolves the to-hit bonus of the Attack through the creature's cached profile of it.
+     *
+     * @param creature the Creature making the Attack
+     * @return the to-hit bonus of the Attack
+     */
     @Override
     protected int resolveBonus(Creature creature) {
-        return creature.getProficiency(this) + creature.abilities().provide(resolveType(creature)).modifier();
+        return creature.profile(this).toHit();
     }
 
     /**
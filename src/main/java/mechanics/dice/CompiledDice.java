@@ -0,0 +1,392 @@
+package mechanics.dice;
+
+import mechanics.Construct;
+import mechanics.Constructor;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A flattened, immutable form of a DiceComposite tree.
+ * Every die in the tree is folded into a count per number of sides, and every constant into a single
+ * constant, so rolling is a loop over two primitive arrays instead of a walk over the tree.
+ * ex.: (1d6 + (1d6 + 1d4 + 2)) + 1 -> {4: 1, 6: 2} + 3
+ * Pools with modifiers such as 4d6kh3 cannot be folded into the counts and are kept as separate terms.
+ * Two trees that roll the same dice compile to equal forms, which makes this the canonical form
+ * used for equality, hashing and cache keys.
+ */
+public final class CompiledDice implements Construct, Serializable {
+    // The distinct die sizes, in ascending order
+    private final int[] sides;
+    // The number of dice of each size, parallel to sides
+    private final int[] counts;
+    // Pools of dice with modifiers, in canonical order
+    private final Pool[] pools;
+    private final int constant;
+    // Lazily built exact distribution; a race only builds an equal copy
+    private transient Distribution distribution;
+    // Lazily computed hash, 0 until first needed
+    private transient int hash;
+    // Lazily built critical form; a race only builds an equal copy
+    private transient CompiledDice critical;
+
+    /**
+     * Constructs the compiled dice from the given Builder.
+     * @param builder the Builder to construct the compiled dice
+     */
+    private CompiledDice(Builder builder) {
+        int size = 0;
+        for (int i = 0; i < builder.size; i++) {
+            if (builder.counts[i] > 0)
+                size++;
+        }
+        this.sides = new int[size];
+        this.counts = new int[size];
+        int index = 0;
+        for (int i = 0; i < builder.size; i++) {
+            if (builder.counts[i] > 0) {
+                sides[index] = builder.sides[i];
+                counts[index++] = builder.counts[i];
+            }
+        }
+        this.pools = Arrays.copyOf(builder.pools, builder.poolCount);
+        Arrays.sort(pools, Pool.ORDER);
+        this.constant = builder.constant;
+    }
+
+    /**
+     * Compiles the given DiceComposite tree.
+     * @param composite the composite to compile
+     * @return the compiled form of the composite
+     */
+    public static CompiledDice of(DiceComposite composite) {
+        return new Builder().with(composite).build();
+    }
+
+    /**
+     * Rolls every die and pool and adds the constant. Allocates nothing.
+     * @param rng the source of randomness
+     * @return the total of the roll
+     */
+    public int roll(RandomSource rng) {
+        int total = constant;
+        for (int i = 0; i < sides.length; i++) {
+            int s = sides[i];
+            for (int n = counts[i]; n > 0; n--)
+                total += rng.nextInt(s) + 1;
+        }
+        for (Pool pool : pools)
+            total += pool.roll(rng);
+        return total;
+    }
+
+    /**
+     * Rolls the compiled dice the given number of times, writing each result into the array.
+     * @param out the array to fill
+     * @param offset the index of the first result in the array
+     * @param n the number of rolls
+     * @param rng the source of randomness
+     */
+    public void rollInto(int[] out, int offset, int n, RandomSource rng) {
+        if (offset < 0 || n < 0 || offset > out.length - n)
+            throw new IndexOutOfBoundsException("Cannot write " + n + " rolls at " + offset
+                    + " into an array of length " + out.length);
+        for (int i = offset, end = offset + n; i < end; i++)
+            out[i] = roll(rng);
+    }
+
+    /**
+     * Returns the exact probability distribution of the compiled dice, built once and cached.
+     * @return the distribution of the compiled dice
+     */
+    public Distribution distribution() {
+        Distribution result = distribution;
+        if (result == null)
+            distribution = result = Distribution.of(this);
+        return result;
+    }
+
+    /**
+     * Returns the compiled dice of a critical hit: every die and pool rolled twice, the constant added once.
+     * Built once and cached, so choosing between normal and critical damage costs nothing.
+     * @return the critical form of the compiled dice
+     */
+    public CompiledDice critical() {
+        CompiledDice result = critical;
+        if (result == null) {
+            Builder builder = new Builder().with(constant);
+            for (int i = 0; i < sides.length; i++)
+                builder.with(counts[i] * 2, sides[i]);
+            for (Pool pool : pools)
+                builder.with(pool).with(pool);
+            critical = result = builder.build();
+        }
+        return result;
+    }
+
+    /**
+     * Getter for the constant of the compiled dice.
+     * @return the constant
+     */
+    public int getConstant() {
+        return constant;
+    }
+
+    /**
+     * Returns the number of distinct die sizes.
+     * @return the number of distinct die sizes
+     */
+    public int sizeCount() {
+        return sides.length;
+    }
+
+    /**
+     * Returns the die size at the given index, in ascending order.
+     * @param index the index of the die size
+     * @return the number of sides of the dice at the index
+     */
+    public int sidesAt(int index) {
+        return sides[index];
+    }
+
+    /**
+     * Returns the number of dice at the given index, in ascending order of die size.
+     * @param index the index of the die size
+     * @return the number of dice of that size
+     */
+    public int countAt(int index) {
+        return counts[index];
+    }
+
+    /**
+     * Returns the number of pools with modifiers.
+     * @return the number of pools
+     */
+    public int poolCount() {
+        return pools.length;
+    }
+
+    /**
+     * Returns the pool at the given index, in canonical order.
+     * @param index the index of the pool
+     * @return the pool at the index
+     */
+    public Pool poolAt(int index) {
+        return pools[index];
+    }
+
+    /**
+     * Returns the number of plain dice with the given number of sides.
+     * @param sides the number of sides
+     * @return the number of dice with that many sides
+     */
+    public int count(int sides) {
+        int index = Arrays.binarySearch(this.sides, sides);
+        return index < 0 ? 0 : counts[index];
+    }
+
+    /**
+     * Returns the total number of dice, including every die of every pool.
+     * @return the total number of dice
+     */
+    public int dieCount() {
+        int total = 0;
+        for (int count : counts)
+            total += count;
+        for (Pool pool : pools)
+            total += pool.getCount();
+        return total;
+    }
+
+    /**
+     * Returns the lowest possible result.
+     * @return the lowest possible result
+     */
+    public int min() {
+        int total = constant;
+        for (int count : counts)
+            total += count;
+        for (Pool pool : pools)
+            total += pool.min();
+        return total;
+    }
+
+    /**
+     * Returns the highest possible result.
+     * @return the highest possible result
+     */
+    public int max() {
+        int total = constant;
+        for (int i = 0; i < sides.length; i++)
+            total += sides[i] * counts[i];
+        for (Pool pool : pools)
+            total += pool.max();
+        return total;
+    }
+
+    /**
+     * Returns a readable string of the compiled dice, largest dice first.
+     * @return the compiled dice in dice notation
+     */
+    public String display() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = sides.length - 1; i >= 0; i--)
+            sb.append(counts[i]).append('d').append(sides[i]).append(" + ");
+        for (Pool pool : pools)
+            sb.append(pool.display()).append(" + ");
+        if (constant > 0)
+            sb.append(constant);
+        else if (constant < 0 && !sb.isEmpty())
+            sb.replace(sb.length() - 3, sb.length(), " - ").append(-constant);
+        else if (!sb.isEmpty())
+            sb.delete(sb.length() - 3, sb.length());
+        else
+            sb.append(constant);
+        return sb.toString();
+    }
+
+    /**
+     * Returns the JSON representation of the compiled dice.
+     * @return the JSON representation of the compiled dice
+     */
+    @Override
+    public String toString() {
+        return "CompiledDice{" +
+                "sides=" + Arrays.toString(sides) +
+                ", counts=" + Arrays.toString(counts) +
+                ", pools=" + Arrays.toString(pools) +
+                ", constant=" + constant +
+                '}';
+    }
+
+    /**
+     * Compares the compiled dice to another object in time proportional to the number of die sizes.
+     * @param other the object to compare
+     * @return true if the other object has the same dice and constant
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other)
+            return true;
+        if (other instanceof CompiledDice dice) {
+            if (hash != 0 && dice.hash != 0 && hash != dice.hash)
+                return false;
+            return constant == dice.constant && Arrays.equals(sides, dice.sides)
+                    && Arrays.equals(counts, dice.counts) && Arrays.equals(pools, dice.pools);
+        }
+        return false;
+    }
+
+    /**
+     * Returns the hash of the compiled dice, computed once and cached.
+     * @return the hash of the compiled dice
+     */
+    @Override
+    public int hashCode() {
+        int result = hash;
+        if (result == 0) {
+            result = 31 * (31 * Arrays.hashCode(sides) + Arrays.hashCode(counts)) + constant;
+            result = 31 * result + Arrays.hashCode(pools);
+            // Reserve 0 for "not yet computed"
+            hash = result = (result == 0 ? 1 : result);
+        }
+        return result;
+    }
+
+    /**
+     * Deconstructs the compiled dice into a Builder.
+     * @return a Builder with the same dice and constant
+     */
+    @Override
+    public Builder deconstruct() {
+        Builder builder = new Builder().with(constant);
+        for (int i = 0; i < sides.length; i++)
+            builder.with(counts[i], sides[i]);
+        for (Pool pool : pools)
+            builder.with(pool);
+        return builder;
+    }
+
+    /**
+     * Builder that tallies dice by their number of sides.
+     */
+    public static class Builder implements Constructor {
+        private int[] sides = new int[4];
+        private int[] counts = new int[4];
+        private int size = 0;
+        private Pool[] pools = new Pool[0];
+        private int poolCount = 0;
+        private int constant = 0;
+
+        /**
+         * Tallies every die and constant in the given composite.
+         * @param composite the composite to tally
+         * @return this Builder as per the Builder pattern
+         */
+        public Builder with(DiceComposite composite) {
+            composite.tally(this);
+            return this;
+        }
+
+        /**
+         * Adds the given number of dice with the given number of sides.
+         * @param count the number of dice
+         * @param sides the number of sides on each die
+         * @return this Builder as per the Builder pattern
+         */
+        public Builder with(int count, int sides) {
+            if (sides < 1)
+                throw new IllegalArgumentException("Dice must have at least one side: " + sides);
+            if (count < 0)
+                throw new IllegalArgumentException("Cannot add a negative number of dice: " + count);
+            // Keep the sides sorted so that lookups and equal trees line up
+            int index = Arrays.binarySearch(this.sides, 0, size, sides);
+            if (index >= 0) {
+                counts[index] += count;
+                return this;
+            }
+            index = -index - 1;
+            if (size == this.sides.length) {
+                this.sides = Arrays.copyOf(this.sides, size * 2);
+                this.counts = Arrays.copyOf(this.counts, size * 2);
+            }
+            System.arraycopy(this.sides, index, this.sides, index + 1, size - index);
+            System.arraycopy(this.counts, index, this.counts, index + 1, size - index);
+            this.sides[index] = sides;
+            this.counts[index] = count;
+            size++;
+            return this;
+        }
+
+        /**
+         * Adds a pool of dice with modifiers as its own term.
+         * @param pool the pool to add
+         * @return this Builder as per the Builder pattern
+         */
+        public Builder with(Pool pool) {
+            if (poolCount == pools.length)
+                pools = Arrays.copyOf(pools, Math.max(2, poolCount * 2));
+            pools[poolCount++] = pool;
+            return this;
+        }
+
+        /**
+         * Adds a constant.
+         * @param constant the constant to add
+         * @return this Builder as per the Builder pattern
+         */
+        public Builder with(int constant) {
+            this.constant += constant;
+            return this;
+        }
+
+        /**
+         * Builds the compiled dice.
+         * @return the compiled dice
+         */
+        @Override
+        public CompiledDice build() {
+            return new CompiledDice(this);
+        }
+    }
+}
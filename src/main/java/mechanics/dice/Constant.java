@@ -1,5 +1,7 @@
 package mechanics.dice;
 
+import java.util.List;
+
 /**
  * A constant value that only occurs when there are no dice in the expression.
  * The usage of this class has been minimized as much as possible. When added to other DiceComposites,
@@ -11,7 +13,7 @@ public class Constant extends DiceComposite {
      * @param value The value of the constant.
      */
     public Constant(int value) {
-        setConstant(value);
+        super(List.of(), value);
     }
 
     /**
@@ -43,17 +45,25 @@ public class Constant extends DiceComposite {
     }
 
     /**
-     * Adds a DiceComposite and this constant together to rreturn a DiceComposite with both values.
+     * Adds a DiceComposite and this constant together to return a DiceComposite with both values.
      * @param other The other DiceComposite to add to this constant.
      * @return The DiceComposite formed from the addition.
      */
     @Override
     public DiceComposite add(DiceComposite other) {
-        if (other instanceof Constant constant) {
-            setConstant(rollAfter() + constant.rollAfter());
-            return this;
-        }
-        return other.add(this);
+        if (other instanceof Constant constant)
+            return new Constant(rollAfter() + constant.rollAfter());
+        return other.add(rollAfter());
+    }
+
+    /**
+     * Adds a constant to this constant.
+     * @param constant The constant to add.
+     * @return A new constant with the sum of both values.
+     */
+    @Override
+    public Constant add(int constant) {
+        return new Constant(rollAfter() + constant);
     }
 
     /**
@@ -7,6 +7,7 @@ import java.util.Set;
 /**
  * Represents a damage roll in D&D 5e.
  * Contains a type of damage and a dice sequence to roll.
+ * Damage is immutable; a critical hit is a separate Damage derived from this one.
  */
 public class Damage extends Sequence {
     /**
@@ -22,11 +23,28 @@ public class Damage extends Sequence {
                 default -> true;
             };
         }
+
+        /**
+         * Returns the magical counterpart of a physical damage type, or the type itself otherwise.
+         * ex.: BLUDGEONING -> M_BLUDGEONING
+         * @return the magical counterpart of the type
+         */
+        public Type magical() {
+            return isMagical() ? this : values()[ordinal() + M_BLUDGEONING.ordinal()];
+        }
+
+        /**
+         * Returns the bit of the type in a damage type bitmask.
+         * @return the bit of the type
+         */
+        public int bit() {
+            return 1 << ordinal();
+        }
     }
 
-    private Type type;
-    // TODO: WHAT WAS THIS FOR?? I THINK FOR DAMAGE VULNERABILITY. Change to be handled by a Creature later
-    private boolean twice = false;
+    private final Type type;
+    // The damage of a critical hit, derived once and cached; a race only derives an equal copy
+    private transient Damage critical;
 
     /**
      * Constructs a new Damage object with the given builder.
@@ -38,13 +56,23 @@ public class Damage extends Sequence {
     }
 
     /**
-     * Rolls the dice sequence and returns the result.
-     * @return the result of the dice roll
+     * Add a die to a copy of the damage, keeping its type
+     * @param other the die to add
+     * @return a new Damage with the die added
      */
     @Override
-    public int roll() {
-        // TODO: If this is for crits, then it's doing it wrong. It is adding the bonus twice, not the dice roll.
-        return twice ? super.roll() + super.roll() : super.roll();
+    public Damage add(DiceComposite other) {
+        return deconstruct().with(other).build();
+    }
+
+    /**
+     * Add a constant to a copy of the damage, keeping its type
+     * @param constant the constant to add
+     * @return a new Damage with the constant added
+     */
+    @Override
+    public Damage add(int constant) {
+        return deconstruct().with(constant).build();
     }
 
     @Override
@@ -53,6 +81,8 @@ public class Damage extends Sequence {
         for (DiceComposite composite : getChildren()) {
             if (composite instanceof Die die) {
                 sides.add(die.getSides());
+            } else if (composite instanceof Pool pool) {
+                sides.add(pool.getSides());
             } else if (composite instanceof Sequence sequence) {
                 sides.addAll(sequence.getSides());
             }
@@ -68,6 +98,8 @@ public class Damage extends Sequence {
                 count += sequence.dieCount();
             else if (composite instanceof Die)
                 count++;
+            else if (composite instanceof Pool pool)
+                count += pool.getCount();
         }
         return count;
     }
@@ -77,17 +109,35 @@ public class Damage extends Sequence {
     }
 
     /**
-     * Sets the damage roll to be a critical hit.
+     * Returns the damage of a critical hit: every die rolled twice, every modifier added once, including
+     * those of nested damage. It is expanded from the compiled critical, so the two always agree.
+     * The damage itself is left unchanged; the critical damage is derived once and cached.
+     * @return the critical damage
+     */
+    public Damage critical() {
+        Damage result = critical;
+        if (result == null)
+            critical = result = new Builder().with(Die.Factory.of(compile().critical())).with(type).build();
+        return result;
+    }
+
+    /**
+     * Rolls the normal or critical damage through their precompiled forms.
+     * @param rng the source of randomness
+     * @param critical whether the hit is critical
+     * @return the damage rolled
      */
-    public void crit() {
-        twice = true;
+    public int roll(RandomSource rng, boolean critical) {
+        return (critical ? compile().critical() : compile()).roll(rng);
     }
 
     /**
-     * Sets the damage roll to be a normal hit.
+     * Returns the exact distribution of the normal or critical damage.
+     * @param critical whether the hit is critical
+     * @return the distribution of the damage
      */
-    public void uncrit() {
-        twice = false;
+    public Distribution distribution(boolean critical) {
+        return (critical ? compile().critical() : compile()).distribution();
     }
 
     /**
@@ -121,6 +171,15 @@ public class Damage extends Sequence {
         return false;
     }
 
+    /**
+     * Hashes the Damage object by its canonical dice and its type.
+     * @return the hash of the Damage object
+     */
+    @Override
+    public int hashCode() {
+        return 31 * super.hashCode() + type.ordinal();
+    }
+
     /**
      * Returns a JSON representation of the Damage object.
      * @return a JSON representation of the Damage object
@@ -139,8 +198,7 @@ public class Damage extends Sequence {
     @Override
     protected String substring() {
         return super.substring() +
-                ", type=" + type +
-                ", twice=" + twice;
+                ", type=" + type;
     }
 
     /**
@@ -149,7 +207,7 @@ public class Damage extends Sequence {
      */
     @Override
     public Builder deconstruct() {
-        return ((Builder) super.deconstruct()).with(type);
+        return new Builder().with(getChildren()).with(rollAfter()).with(type);
     }
 
     public static Damage parse(String damageNotation) {
@@ -183,6 +241,12 @@ public class Damage extends Sequence {
             return this;
         }
 
+        @Override
+        public Builder with(int constant) {
+            super.with(constant);
+            return this;
+        }
+
         public Builder with(int numDice, int dieType) {
             return with(numDice + "d" + dieType);
         }
@@ -0,0 +1,257 @@
+package mechanics.dice;
+
+import mechanics.Construct;
+import mechanics.Constructor;
+
+import java.io.Serializable;
+
+/**
+ * All the damage of a single hit, such as "1d8 slashing + 2d6 fire + 1d4 radiant".
+ * Components are compiled and stored in an array indexed by damage type, with a bitmask of the types present,
+ * so a whole hit is rolled in one pass over primitive arrays.
+ * Packets are immutable and safe to share between threads.
+ */
+public final class DamagePacket implements Construct, Serializable {
+    // The number of damage types, and so the length of a per-type array
+    public static final int TYPES = Damage.Type.values().length;
+
+    // components[type.ordinal()] is the compiled damage of that type, or null if absent
+    private final CompiledDice[] components;
+    // Bit i is set when the damage type with ordinal i is present
+    private final int mask;
+    // Lazily built exact distribution of the total; a race only builds an equal copy
+    private transient Distribution distribution;
+
+    /**
+     * Constructs the packet from the given Builder.
+     * @param builder the Builder to construct the packet
+     */
+    private DamagePacket(Builder builder) {
+        this.components = new CompiledDice[TYPES];
+        int mask = 0;
+        for (int i = 0; i < TYPES; i++) {
+            if (builder.components[i] != null) {
+                components[i] = builder.components[i].build();
+                mask |= 1 << i;
+            }
+        }
+        this.mask = mask;
+    }
+
+    /**
+     * Gathers the given damage into a packet, merging damage of the same type.
+     * @param damages the damage to gather
+     * @return the packet of the damage
+     */
+    public static DamagePacket of(Damage... damages) {
+        Builder builder = new Builder();
+        for (Damage damage : damages)
+            builder.with(damage);
+        return builder.build();
+    }
+
+    /**
+     * Rolls the total damage of the packet. Allocates nothing.
+     * @param rng the source of randomness
+     * @return the total damage rolled
+     */
+    public int roll(RandomSource rng) {
+        return roll(rng, false);
+    }
+
+    /**
+     * Rolls the total normal or critical damage of the packet. Allocates nothing.
+     * @param rng the source of randomness
+     * @param critical whether the hit is critical
+     * @return the total damage rolled
+     */
+    public int roll(RandomSource rng, boolean critical) {
+        int total = 0;
+        for (int bits = mask; bits != 0; bits &= bits - 1) {
+            CompiledDice component = components[Integer.numberOfTrailingZeros(bits)];
+            // Damage never goes below 0, even with a negative modifier
+            total += Math.max(0, (critical ? component.critical() : component).roll(rng));
+        }
+        return total;
+    }
+
+    /**
+     * Rolls every component of the packet into the given per-type array, indexed by damage type ordinal.
+     * Types absent from the packet are set to 0. Allocates nothing.
+     * @param rng the source of randomness
+     * @param critical whether the hit is critical
+     * @param out the array to fill, of length at least {@link #TYPES}
+     * @return the total damage rolled
+     */
+    public int rollInto(RandomSource rng, boolean critical, int[] out) {
+        int total = 0;
+        for (int i = 0; i < TYPES; i++) {
+            CompiledDice component = components[i];
+            int rolled = component == null ? 0 : (critical ? component.critical() : component).roll(rng);
+            // Damage never goes below 0, even with a negative modifier
+            out[i] = Math.max(0, rolled);
+            total += out[i];
+        }
+        return total;
+    }
+
+    /**
+     * Returns the exact distribution of the total normal damage of the packet.
+     * Each type is clamped at 0 before the types are combined, as when rolling.
+     * @return the distribution of the total damage
+     */
+    public Distribution distribution() {
+        Distribution result = distribution;
+        if (result == null) {
+            result = Distribution.constant(0);
+            for (int bits = mask; bits != 0; bits &= bits - 1)
+                result = result.convolve(components[Integer.numberOfTrailingZeros(bits)].distribution()
+                        .atLeastFloor(0));
+            distribution = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the bitmask of the damage types in the packet, bit i for the type with ordinal i.
+     * @return the bitmask of the damage types present
+     */
+    public int types() {
+        return mask;
+    }
+
+    /**
+     * Returns whether the packet deals damage of the given type.
+     * @param type the damage type
+     * @return true if the packet has a component of the type
+     */
+    public boolean has(Damage.Type type) {
+        return (mask & type.bit()) != 0;
+    }
+
+    /**
+     * Returns the compiled component of the given type.
+     * @param type the damage type
+     * @return the compiled damage of the type, or null if absent
+     */
+    public CompiledDice get(Damage.Type type) {
+        return components[type.ordinal()];
+    }
+
+    /**
+     * Displays the packet as a readable string, such as "1d8 + 3 slashing + 2d6 fire".
+     * @return the packet in dice notation
+     */
+    public String display() {
+        StringBuilder sb = new StringBuilder();
+        for (int bits = mask; bits != 0; bits &= bits - 1) {
+            int i = Integer.numberOfTrailingZeros(bits);
+            if (!sb.isEmpty())
+                sb.append(" + ");
+            sb.append(components[i].display()).append(' ')
+                    .append(Damage.Type.values()[i].name().toLowerCase());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the JSON representation of the packet.
+     * @return the JSON representation of the packet
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("DamagePacket{");
+        for (int bits = mask; bits != 0; bits &= bits - 1) {
+            int i = Integer.numberOfTrailingZeros(bits);
+            sb.append(Damage.Type.values()[i]).append('=').append(components[i]);
+            if ((bits & bits - 1) != 0)
+                sb.append(", ");
+        }
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Compares the packet to another object by its components.
+     * @param other the object to compare
+     * @return true if the other object is a packet with equal components of every type
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (other instanceof DamagePacket packet) {
+            if (mask != packet.mask)
+                return false;
+            for (int bits = mask; bits != 0; bits &= bits - 1) {
+                int i = Integer.numberOfTrailingZeros(bits);
+                if (!components[i].equals(packet.components[i]))
+                    return false;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Hashes the packet by its components.
+     * @return the hash of the packet
+     */
+    @Override
+    public int hashCode() {
+        int result = mask;
+        for (int bits = mask; bits != 0; bits &= bits - 1)
+            result = 31 * result + components[Integer.numberOfTrailingZeros(bits)].hashCode();
+        return result;
+    }
+
+    /**
+     * Deconstructs the packet into a Builder.
+     * @return a Builder with the same components
+     */
+    @Override
+    public Builder deconstruct() {
+        Builder builder = new Builder();
+        for (int bits = mask; bits != 0; bits &= bits - 1) {
+            int i = Integer.numberOfTrailingZeros(bits);
+            builder.components[i] = components[i].deconstruct();
+        }
+        return builder;
+    }
+
+    /**
+     * Builder that merges damage into one component per damage type.
+     */
+    public static class Builder implements Constructor {
+        private final CompiledDice.Builder[] components = new CompiledDice.Builder[TYPES];
+
+        /**
+         * Adds the given damage to the component of its type.
+         * @param damage the damage to add
+         * @return this Builder as per the Builder pattern
+         */
+        public Builder with(Damage damage) {
+            return with(damage, damage.getType());
+        }
+
+        /**
+         * Adds the given dice to the component of the given type.
+         * @param dice the dice to add
+         * @param type the type of damage the dice deal
+         * @return this Builder as per the Builder pattern
+         */
+        public Builder with(DiceComposite dice, Damage.Type type) {
+            CompiledDice.Builder component = components[type.ordinal()];
+            if (component == null)
+                components[type.ordinal()] = component = new CompiledDice.Builder();
+            component.with(dice);
+            return this;
+        }
+
+        /**
+         * Builds the packet.
+         * @return the packet
+         */
+        @Override
+        public DamagePacket build() {
+            return new DamagePacket(this);
+        }
+    }
+}
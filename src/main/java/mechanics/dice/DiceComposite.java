@@ -1,16 +1,36 @@
 package mechanics.dice;
 
 import java.io.Serializable;
-import java.util.LinkedList;
 import java.util.List;
 
 /**
  * A composite of dice that can be rolled.
  * Uses the Composite Java Design Pattern
+ * Composites are immutable: adding to one returns a new composite, so a single instance, such as a
+ * flyweight die or the damage of a catalog weapon, can be shared by any number of threads.
  */
 public abstract class DiceComposite implements Rollable, Serializable {
-    private final List<DiceComposite> children = new LinkedList<>();
-    private int constant = 0;
+    private final List<DiceComposite> children;
+    private final int constant;
+    // The cached canonical form; a race only compiles an equal copy
+    private transient CompiledDice compiled;
+
+    /**
+     * Constructor for a composite with no children and no constant
+     */
+    protected DiceComposite() {
+        this(List.of(), 0);
+    }
+
+    /**
+     * Constructor for a composite with the given children and constant
+     * @param children the children of the composite
+     * @param constant the constant added to the total roll
+     */
+    protected DiceComposite(List<DiceComposite> children, int constant) {
+        this.children = List.copyOf(children);
+        this.constant = constant;
+    }
 
     /**
      * Add the constant to the total roll
@@ -22,39 +42,78 @@ public abstract class DiceComposite implements Rollable, Serializable {
     }
 
     /**
-     * Roll the dice and return the total
+     * Roll the dice with the given source of randomness and return the total.
+     * Rolls through the cached compiled form rather than walking the tree.
+     * @param rng the source of randomness
      * @return the total of the dice roll
      */
     @Override
-    public int roll() {
-        int total = 0;
+    public int roll(RandomSource rng) {
+        return compile().roll(rng);
+    }
+
+    /**
+     * Roll the composite many times through its compiled form, so the tree is walked once
+     * rather than once per roll
+     * @param out the array to fill
+     * @param offset the index of the first result in the array
+     * @param n the number of rolls
+     * @param rng the source of randomness
+     */
+    @Override
+    public void rollInto(int[] out, int offset, int n, RandomSource rng) {
+        compile().rollInto(out, offset, n, rng);
+    }
+
+    /**
+     * Flatten the composite into a histogram of dice by number of sides plus a constant.
+     * The compiled form can be rolled without walking the tree and is the canonical form of the
+     * composite: it is cached for the life of the composite, and drives equals() and hashCode().
+     * @return the compiled form of the composite
+     */
+    public CompiledDice compile() {
+        CompiledDice result = compiled;
+        if (result == null)
+            compiled = result = CompiledDice.of(this);
+        return result;
+    }
+
+    /**
+     * Compute the exact probability distribution of the composite, including its mean,
+     * variance and percentiles, without rolling it.
+     * @return the distribution of the composite
+     */
+    public Distribution distribution() {
+        return compile().distribution();
+    }
+
+    /**
+     * Tally the constant and every child of the composite into the given builder
+     * @param builder the builder to tally into
+     */
+    protected void tally(CompiledDice.Builder builder) {
+        builder.with(constant);
         for (DiceComposite die : children) {
-            total += die.roll();
+            die.tally(builder);
         }
-        return total + rollAfter();
     }
 
     /**
-     * Add a die to the composite
+     * Add a die to the composite, leaving this composite unchanged
      * @param other the die to add
-     * @return the composite with the die added
+     * @return a new composite rolling both
      */
     public DiceComposite add(DiceComposite other) {
-        if (other instanceof Constant constant)
-            add(constant.rollAfter());
-        else
-            children.add(other);
-        return this;
+        return new Sequence.Builder().with(this).with(other).build();
     }
 
     /**
-     * Add a constant to the composite
+     * Add a constant to the composite, leaving this composite unchanged
      * @param constant the constant to add
-     * @return the composite with the constant added
+     * @return a new composite rolling this plus the constant
      */
     public DiceComposite add(int constant) {
-        this.constant += constant;
-        return this;
+        return new Sequence.Builder().with(this).with(constant).build();
     }
 
     /**
@@ -77,15 +136,6 @@ public abstract class DiceComposite implements Rollable, Serializable {
                 ", constant=" + constant;
     }
 
-    /**
-     * Set the children of the composite
-     * @param children the children to set
-     */
-    public void setChildren(List<DiceComposite> children) {
-        this.children.clear();
-        this.children.addAll(children);
-    }
-
     /**
      * Get the constant of the composite
      * @return the constant
@@ -94,14 +144,6 @@ public abstract class DiceComposite implements Rollable, Serializable {
         return constant;
     }
 
-    /**
-     * Set the constant of the composite
-     * @param constant the constant to set
-     */
-    public void setConstant(int constant) {
-        this.constant = constant;
-    }
-
     /**
      * Subtract the given composite from this composite
      * @param other the composite to subtract
@@ -149,12 +191,21 @@ public abstract class DiceComposite implements Rollable, Serializable {
 
     /**
      * Getter for the children of the composite
-     * @return the children of the composite
+     * @return the unmodifiable children of the composite
      */
     public List<DiceComposite> getChildren() {
         return children;
     }
 
+    /**
+     * Hash the composite by its canonical form, so equal dice expressions can key a HashMap.
+     * @return the hash of the canonical form
+     */
+    @Override
+    public int hashCode() {
+        return compile().hashCode();
+    }
+
     /**
      * Convert the composite to a damage object
      * @param type the type of damage
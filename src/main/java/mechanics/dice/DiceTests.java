@@ -1,11 +1,17 @@
 package mechanics.dice;
 
+import game.entities.AbilityContour;
+import game.entities.Creature;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.stream.IntStream;
 
 public class DiceTests {
 
@@ -106,4 +112,312 @@ public class DiceTests {
         System.out.println(d6Explode.display());
         System.out.println(d6Explode.roll());
     }
+
+    @Test
+    public void testCompile() {
+        Sequence sequence = new Sequence.Builder()
+                .with(Die.Factory.d6())
+                .with(Die.Factory.parse("2d4"))
+                .with(new Sequence.Builder()
+                        .with(Die.Factory.d6())
+                        .with(2)
+                        .build())
+                .with(1)
+                .build();
+        CompiledDice compiled = sequence.compile();
+        Assertions.assertEquals(2, compiled.count(6));
+        Assertions.assertEquals(2, compiled.count(4));
+        Assertions.assertEquals(0, compiled.count(8));
+        Assertions.assertEquals(4, compiled.dieCount());
+        Assertions.assertEquals(sequence.dieCount(), compiled.dieCount());
+        Assertions.assertEquals("2d6 + 2d4 + 3", compiled.display());
+
+        RandomSource max = bound -> bound - 1;
+        RandomSource min = bound -> 0;
+        Assertions.assertEquals(compiled.max(), compiled.roll(max));
+        Assertions.assertEquals(compiled.min(), compiled.roll(min));
+        for (int i = 0; i < 1000; i++) {
+            int roll = compiled.roll(RandomSource.DEFAULT);
+            Assertions.assertTrue(roll >= compiled.min() && roll <= compiled.max());
+        }
+    }
+
+    @Test
+    public void testSeededRandomSource() {
+        DiceComposite dice = Die.Factory.parse("1d20 + 4d6 + 3");
+        RandomSource first = RandomSource.seeded(42);
+        RandomSource second = RandomSource.seeded(42);
+        for (int i = 0; i < 100; i++)
+            Assertions.assertEquals(dice.roll(first), dice.roll(second));
+
+        RandomSource split = first.split();
+        RandomSource splitAgain = second.split();
+        for (int i = 0; i < 100; i++)
+            Assertions.assertEquals(dice.compile().roll(split), dice.compile().roll(splitAgain));
+
+        Assertions.assertSame(RandomSource.local(), RandomSource.local().split());
+        int roll = Die.Factory.d20().roll(RandomSource.local());
+        Assertions.assertTrue(roll >= 1 && roll <= 20);
+    }
+
+    @Test
+    public void testDistribution() {
+        Distribution distribution = Die.Factory.parse("2d6 + 1d4 + 5").distribution();
+        Assertions.assertEquals(8, distribution.min());
+        Assertions.assertEquals(21, distribution.max());
+        Assertions.assertEquals(14.5, distribution.mean(), 1e-9);
+        Assertions.assertEquals(85.0 / 12, distribution.variance(), 1e-9);
+        Assertions.assertEquals(1, distribution.cdf(21), 1e-9);
+        Assertions.assertEquals(0, distribution.cdf(7));
+        Assertions.assertEquals(1.0 / 144, distribution.probability(8), 1e-12);
+        Assertions.assertEquals(14, distribution.percentile(0.5));
+        Assertions.assertEquals(8, distribution.percentile(0));
+        Assertions.assertEquals(21, distribution.percentile(1));
+
+        Distribution twoD6 = Die.Factory.parse("2d6").distribution();
+        Assertions.assertEquals(6.0 / 36, twoD6.probability(7), 1e-12);
+        Assertions.assertEquals(15.0 / 36, twoD6.cdf(6), 1e-12);
+        Assertions.assertEquals(21.0 / 36, twoD6.atLeast(7), 1e-12);
+
+        Distribution many = Die.Factory.parse("20d6").distribution();
+        Assertions.assertEquals(70, many.mean(), 1e-9);
+        Assertions.assertEquals(20 * 35.0 / 12, many.variance(), 1e-9);
+
+        Distribution constant = new Constant(3).distribution();
+        Assertions.assertEquals(3, constant.mean(), 1e-12);
+        Assertions.assertEquals(0, constant.variance(), 1e-12);
+    }
+
+    @Test
+    public void testCanonicalEquality() {
+        Sequence first = (Sequence) Die.Factory.parse("1d6 + 2d4 + 3");
+        Sequence second = new Sequence.Builder()
+                .with(Die.Factory.d4())
+                .with(2)
+                .with(new Sequence.Builder()
+                        .with(Die.Factory.d6())
+                        .with(Die.Factory.d4())
+                        .with(1)
+                        .build())
+                .build();
+        Assertions.assertEquals(first, second);
+        Assertions.assertEquals(first.hashCode(), second.hashCode());
+        Assertions.assertNotEquals(first, Die.Factory.parse("1d6 + 2d4 + 2"));
+        Assertions.assertNotEquals(first, Die.Factory.parse("1d8 + 2d4 + 3"));
+
+        Damage slashing = first.of(Damage.Type.SLASHING);
+        Assertions.assertEquals(slashing, second.of(Damage.Type.SLASHING));
+        Assertions.assertNotEquals(slashing, first.of(Damage.Type.FIRE));
+        Assertions.assertNotEquals(first, slashing);
+        Assertions.assertNotEquals(slashing, first);
+
+        Map<DiceComposite, String> cache = new HashMap<>();
+        cache.put(first, "first");
+        Assertions.assertEquals("first", cache.get(second));
+
+        Sequence copy = first.copy();
+        Assertions.assertEquals(first, copy);
+        Sequence larger = copy.add(1);
+        Assertions.assertEquals(first, copy);
+        Assertions.assertNotEquals(first, larger);
+        Assertions.assertEquals(Die.Factory.parse("1d6 + 2d4 + 4"), larger);
+    }
+
+    @Test
+    public void testNotation() {
+        Assertions.assertEquals(Die.Factory.parse("3d6 + 2"), Die.Factory.parse("3d6+2"));
+        Assertions.assertEquals(Die.Factory.parse("1d20 + 1d4 + 3"), Die.Factory.parse(" d20+D4 +3 "));
+        Assertions.assertEquals(Die.Factory.d8(), Die.Factory.parse("1d8"));
+        Assertions.assertEquals(new Constant(5), Die.Factory.parse("5"));
+        Assertions.assertEquals(new Constant(-2), Die.Factory.parse("-2"));
+
+        CompiledDice compiled = Notation.compile("1d20 - 1 + 2d6 - 3");
+        Assertions.assertEquals(-4, compiled.getConstant());
+        Assertions.assertEquals(2, compiled.count(6));
+        Assertions.assertEquals(1, compiled.count(20));
+        Assertions.assertEquals("1d20 + 2d6 - 4", compiled.display());
+        Assertions.assertSame(compiled, Notation.compile("1d20 - 1 + 2d6 - 3"));
+        Assertions.assertEquals(10, Notation.compile("10d6").count(6));
+
+        // Negative constants keep their sign through display and parse again to the same dice
+        for (String notation : List.of("1d20 - 1", "2d6 + 1d4 - 3", "10d6", "4d6kh3 - 2")) {
+            DiceComposite dice = Die.Factory.parse(notation);
+            Assertions.assertEquals(dice, Die.Factory.parse(dice.display()));
+        }
+        Assertions.assertEquals("1d20 - 1", Die.Factory.parse("1d20 - 1").display());
+        Damage dagger = Damage.parse("1d4 - 1 piercing");
+        Assertions.assertEquals(-1, dagger.rollAfter());
+        Assertions.assertTrue(dagger.display().startsWith("1d4 - 1"));
+        // Several dice of a size parse into one counted child
+        Assertions.assertEquals(1, Die.Factory.parse("10d6").getChildren().size());
+        Assertions.assertEquals("10d6", Die.Factory.parse("10d6").display());
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Die.Factory.parse("1d7"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Die.Factory.parse("2d"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Die.Factory.parse("1d6 +"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Die.Factory.parse("1d6 * 2"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Die.Factory.parse("5 - 1d4"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Die.Factory.parse(""));
+
+        // Counts and sides are capped so chat input cannot exhaust the bot
+        Assertions.assertEquals(Notation.MAX_DICE, Notation.compile(Notation.MAX_DICE + "d6").count(6));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Notation.compile((Notation.MAX_DICE + 1) + "d6"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Notation.compile("600d6 + 600d8"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Notation.compile("2147483647d6kh1"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Notation.compile("1d" + (Notation.MAX_SIDES + 1)));
+        IllegalArgumentException tooMany = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> Notation.compile("1d20 + 1001d6"));
+        Assertions.assertTrue(tooMany.getMessage().contains("at position 7"));
+
+        for (int i = 0; i < 1000; i++)
+            Notation.compile(i + "d6");
+        Assertions.assertTrue(Notation.cached() <= 256);
+    }
+
+    @Test
+    public void testPool() {
+        // 4d6 drop lowest, the classic ability score roll
+        DiceComposite stats = Die.Factory.parse("4d6kh3");
+        Assertions.assertEquals(Die.Factory.parse("4d6dl1"), stats);
+        Assertions.assertEquals("4d6kh3", stats.display());
+        Assertions.assertEquals(15869.0 / 1296, stats.distribution().mean(), 1e-9);
+        Assertions.assertEquals(3, stats.distribution().min());
+        Assertions.assertEquals(18, stats.distribution().max());
+        Assertions.assertEquals(1.0 / 1296, stats.distribution().probability(3), 1e-12);
+
+        // Disadvantage as a pool
+        Distribution disadvantage = Die.Factory.parse("2d20kl1").distribution();
+        Assertions.assertEquals(0.25, disadvantage.atLeast(11), 1e-12);
+        Assertions.assertEquals(7.175, disadvantage.mean(), 1e-9);
+
+        // Great Weapon Fighting rerolls 1s and 2s once
+        Assertions.assertEquals(2 * 25.0 / 6, Die.Factory.parse("2d6r2").distribution().mean(), 1e-9);
+        // Exploding dice average 6/5 of a plain die, give or take the negligible capped tail
+        Assertions.assertEquals(4.2, Die.Factory.parse("1d6!").distribution().mean(), 1e-9);
+        Assertions.assertEquals(50.5, Die.Factory.d100().distribution().mean(), 1e-9);
+
+        CompiledDice mixed = Notation.compile("1d8 + 4d6kh3 + 2");
+        Assertions.assertEquals("1d8 + 4d6kh3 + 2", mixed.display());
+        Assertions.assertEquals(Die.Factory.of(mixed).compile(), mixed);
+        Assertions.assertEquals(6, mixed.min());
+        Assertions.assertEquals(28, mixed.max());
+
+        RandomSource rng = RandomSource.seeded(7);
+        long total = 0;
+        int trials = 100_000;
+        for (int i = 0; i < trials; i++) {
+            int roll = stats.roll(rng);
+            Assertions.assertTrue(roll >= 3 && roll <= 18);
+            total += roll;
+        }
+        Assertions.assertEquals(stats.distribution().mean(), (double) total / trials, 0.05);
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Die.Factory.parse("2d6kh3"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Die.Factory.parse("2d6r6"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Die.Factory.parse("4d6kh3kl1"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Die.Factory.parse("4d6k"));
+    }
+
+    @Test
+    public void testBulkRolls() {
+        DiceComposite dice = Die.Factory.parse("2d6 + 1d4 + 5");
+        int[] out = new int[1002];
+        dice.rollInto(out, 1, 1000, RandomSource.seeded(3));
+        Assertions.assertEquals(0, out[0]);
+        Assertions.assertEquals(0, out[1001]);
+        RandomSource rng = RandomSource.seeded(3);
+        for (int i = 1; i <= 1000; i++)
+            Assertions.assertEquals(dice.compile().roll(rng), out[i]);
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> dice.rollInto(out, 3, 1000, RandomSource.local()));
+
+        Assertions.assertEquals(1_000_000, dice.rolls(1_000_000).parallel().count());
+        Assertions.assertTrue(dice.rolls(100_000).allMatch(roll -> roll >= 8 && roll <= 21));
+        double mean = dice.rolls(1_000_000, RandomSource.seeded(11)).parallel().average().orElseThrow();
+        Assertions.assertEquals(14.5, mean, 0.05);
+        Assertions.assertEquals(0, dice.rolls(0).count());
+    }
+
+    @Test
+    public void testImmutable() {
+        Damage damage = Damage.parse("1d8 + 3 slashing");
+        Damage critical = damage.critical();
+        Assertions.assertEquals(Damage.parse("1d8 + 3 slashing"), damage);
+        Assertions.assertEquals(Damage.parse("2d8 + 3 slashing"), critical);
+        Assertions.assertEquals(Damage.Type.SLASHING, damage.add(2).getType());
+        Assertions.assertEquals(Damage.parse("1d8 + 1d4 + 3 slashing"), damage.add(Die.Factory.d4()));
+        Assertions.assertEquals(Damage.parse("1d8 + 3 slashing"), damage);
+
+        Constant two = new Constant(2);
+        Assertions.assertEquals(new Constant(5), two.add(3));
+        Assertions.assertEquals(new Constant(2), two);
+        Assertions.assertEquals(Die.Factory.parse("1d6 + 2"), two.add(Die.Factory.d6()));
+        Assertions.assertEquals(Die.Factory.parse("1d6"), Die.Factory.d6());
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> damage.getChildren().clear());
+
+        // Shared damage can be rolled and crit from many threads at once
+        Assertions.assertTrue(IntStream.range(0, 10_000).parallel()
+                .allMatch(i -> damage.critical().roll() >= 5 && damage.roll() <= 11));
+    }
+
+    @Test
+    public void testDamagePacket() {
+        DamagePacket packet = DamagePacket.of(Damage.parse("1d8 + 3 slashing"),
+                Damage.parse("2d6 fire"), Damage.parse("1d4 radiant"), Damage.parse("1d6 fire"));
+        Assertions.assertEquals("1d8 + 3 slashing + 3d6 fire + 1d4 radiant", packet.display());
+        Assertions.assertTrue(packet.has(Damage.Type.FIRE));
+        Assertions.assertFalse(packet.has(Damage.Type.COLD));
+        Assertions.assertEquals(3, packet.get(Damage.Type.FIRE).count(6));
+        Assertions.assertEquals(4.5 + 3 + 10.5 + 2.5, packet.distribution().mean(), 1e-9);
+        Assertions.assertEquals(packet, packet.deconstruct().build());
+
+        // Each type is clamped at 0 before the types add up, in the distribution as when rolling
+        DamagePacket weak = DamagePacket.of(Damage.parse("1d4 - 2 piercing"), Damage.parse("1d4 fire"));
+        Assertions.assertEquals(1, weak.distribution().min());
+        Assertions.assertEquals(0.75 + 2.5, weak.distribution().mean(), 1e-9);
+        Assertions.assertEquals(0.5 * 0.25, weak.distribution().probability(1), 1e-9);
+
+        int[] out = new int[DamagePacket.TYPES];
+        RandomSource rng = RandomSource.seeded(9);
+        for (int i = 0; i < 1000; i++) {
+            int total = packet.rollInto(rng, true, out);
+            Assertions.assertEquals(out[Damage.Type.SLASHING.ordinal()] + out[Damage.Type.FIRE.ordinal()]
+                    + out[Damage.Type.RADIANT.ordinal()], total);
+            Assertions.assertTrue(out[Damage.Type.FIRE.ordinal()] >= 6);
+            Assertions.assertEquals(0, out[Damage.Type.COLD.ordinal()]);
+        }
+
+        Creature target = new Creature(new AbilityContour(new int[]{10, 10, 10, 10, 10, 10}), 10, "Target")
+                .withHitPoints(30);
+        int lost = target.applyDamage(packet, false, RandomSource.seeded(2));
+        Assertions.assertEquals(30 - lost, target.getHitPoints());
+        Assertions.assertEquals(Math.min(30, packet.roll(RandomSource.seeded(2))), lost);
+        Assertions.assertEquals(target.getHitPoints(), target.takeDamage(100));
+        Assertions.assertEquals(0, target.getHitPoints());
+    }
+
+    @Test
+    public void testResistances() {
+        DamagePacket packet = DamagePacket.of(Damage.parse("10 bludgeoning"), Damage.parse("7 fire"),
+                Damage.parse("5 cold"), Damage.parse("8 m_bludgeoning"));
+        AbilityContour contour = new AbilityContour(new int[]{10, 10, 10, 10, 10, 10});
+        Creature golem = new Creature(contour, 10, "Golem").withHitPoints(100)
+                .addResistance(Damage.Type.BLUDGEONING, false)
+                .addVulnerability(Damage.Type.FIRE)
+                .addImmunity(Damage.Type.COLD);
+        Creature troll = new Creature(contour, 10, "Troll").withHitPoints(100)
+                .addResistance(Damage.Type.FIRE)
+                .addVulnerability(Damage.Type.FIRE);
+        Creature commoner = new Creature(contour, 10, "Commoner").withHitPoints(100);
+        Assertions.assertTrue(golem.isResistant(Damage.Type.BLUDGEONING));
+        Assertions.assertFalse(golem.isResistant(Damage.Type.M_BLUDGEONING));
+        Assertions.assertTrue(new Creature(contour, 10, "Ghost").addResistance(Damage.Type.SLASHING)
+                .isResistant(Damage.Type.M_SLASHING));
+
+        Assertions.assertEquals(27, golem.applyDamage(packet, false, RandomSource.local()));
+        int lost = Creature.applyDamage(packet, new Creature[]{golem, troll, commoner}, RandomSource.local());
+        Assertions.assertEquals(27 + 29 + 30, lost);
+        Assertions.assertEquals(100 - 27 - 27, golem.getHitPoints());
+        Assertions.assertEquals(100 - 29, troll.getHitPoints());
+        Assertions.assertEquals(100 - 30, commoner.getHitPoints());
+    }
 }
@@ -1,13 +1,10 @@
 package mechanics.dice;
 
-import java.util.HashMap;
-import java.util.Map;
-
 /**
  * A die with a specified number of sides.
  */
 public class Die extends DiceComposite {
-    private int sides;
+    private final int sides;
 
     /**
      * Default constructor for a 20-sided die.
@@ -37,6 +34,7 @@ public class Die extends DiceComposite {
             case 10 -> Type.d10;
             case 12 -> Type.d12;
             case 20 -> Type.d20;
+            case 100 -> Type.d100;
             default -> throw new IllegalArgumentException("Invalid die type");
         };
     }
@@ -51,12 +49,22 @@ public class Die extends DiceComposite {
     }
 
     /**
-     * Roll the die.
+     * Roll the die with the given source of randomness.
+     * @param rng the source of randomness
      * @return a random number between 1 and the number of sides
      */
     @Override
-    public int roll() {
-        return (int) (Math.random() * sides) + 1;
+    public int roll(RandomSource rng) {
+        return rng.nextInt(sides) + 1;
+    }
+
+    /**
+     * Tally the die into the given builder.
+     * @param builder the builder to tally into
+     */
+    @Override
+    protected void tally(CompiledDice.Builder builder) {
+        builder.with(1, sides);
     }
 
     /**
@@ -76,14 +84,6 @@ public class Die extends DiceComposite {
         return sides;
     }
 
-    /**
-     * Setter for the number of sides on the die.
-     * @param sides the number of sides on the die
-     */
-    public void setSides(int sides) {
-        this.sides = sides;
-    }
-
     /**
      * Convert the die to JSON format.
      * @return
@@ -111,9 +111,9 @@ public class Die extends DiceComposite {
      * The types of dice available.
      */
     public enum Type {
-        d20(20), d12(12), d10(10), d8(8), d6(6), d4(4);
+        d100(100), d20(20), d12(12), d10(10), d8(8), d6(6), d4(4);
 
-        private int sides;
+        private final int sides;
 
         Type(int sides) {
             this.sides = sides;
@@ -123,6 +123,37 @@ public class Die extends DiceComposite {
             return sides;
         }
 
+        /**
+         * Get the die type with the given number of sides.
+         * @param sides the number of sides
+         * @return the die type with that many sides
+         * @throws IllegalArgumentException if no die type has that many sides
+         */
+        public static Type of(int sides) {
+            return switch (sides) {
+                case 4 -> d4;
+                case 6 -> d6;
+                case 8 -> d8;
+                case 10 -> d10;
+                case 12 -> d12;
+                case 20 -> d20;
+                case 100 -> d100;
+                default -> throw new IllegalArgumentException("Invalid die type: d" + sides);
+            };
+        }
+
+        /**
+         * Check whether a die type has the given number of sides.
+         * @param sides the number of sides
+         * @return true if some die type has that many sides
+         */
+        public static boolean isStandard(int sides) {
+            return switch (sides) {
+                case 4, 6, 8, 10, 12, 20, 100 -> true;
+                default -> false;
+            };
+        }
+
         public static int sides(Type die) {
             return switch (die) {
                 case d4 -> 4;
@@ -131,6 +162,7 @@ public class Die extends DiceComposite {
                 case d10 -> 10;
                 case d12 -> 12;
                 case d20 -> 20;
+                case d100 -> 100;
             };
         }
 
@@ -140,8 +172,8 @@ public class Die extends DiceComposite {
          * @return the die type higher than the lower
          */
         public static Type explode(Type lower) {
-            // return the die type higher than the lower
-            if (lower == d20)
+            // return the die type higher than the lower; percentile dice are not a step up from a d20
+            if (lower == d20 || lower == d100)
                 throw new IllegalArgumentException("No die type above a d20.");
             int currIndex = lower.ordinal();
             return values()[--currIndex];
@@ -152,38 +184,48 @@ public class Die extends DiceComposite {
      * Flyweight factory class for creating dice.
      */
     public static class Factory {
-        private static Map<Type, Die> dice = new HashMap<>();
+        // One die per type, indexed by ordinal and built up front so every thread sees the same dice
+        private static final Die[] dice = new Die[Type.values().length];
+
+        static {
+            for (Type type : Type.values())
+                dice[type.ordinal()] = new Die(type.getSides());
+        }
 
         /**
          * Parse a dice notation string into a DiceComposite object.
          * @param notation the dice notation string
          * @return the DiceComposite object
+         * @see Notation#compile(String)
          */
         public static DiceComposite parse(String notation) {
-            notation = notation.toLowerCase().trim();
-
-            String[] parts = notation.split("\\s+\\+\\s+");
-            if (parts.length == 1) {
-                String[] subparts = parts[0].split("d");
-                if (subparts.length == 1)
-                    return new Constant(Integer.parseInt(parts[0]));
-                else if (subparts[0].equals("1")) {
-                    return weigh(Type.valueOf("d" + subparts[1]));
-                } else {
-                    int count = Integer.parseInt(subparts[0]);
-                    Sequence.Builder sequence = new Sequence.Builder();
-                    for (int i = 0; i < count; i++) {
-                        sequence.with(weigh(Type.valueOf("d" + subparts[1])));
-                    }
-                    return sequence.build();
-                }
-            } else {
-                Sequence.Builder sequence = new Sequence.Builder();
-                for (String part : parts) {
-                    sequence.with(parse(part));
-                }
-                return sequence.build();
+            return of(Notation.compile(notation));
+        }
+
+        /**
+         * Expand compiled dice back into a DiceComposite tree.
+         * A lone die becomes its flyweight, a lone pool itself, no dice a Constant, and anything else a Sequence
+         * holding a flyweight or a plain pool per die size.
+         * @param dice the compiled dice
+         * @return the DiceComposite object
+         */
+        public static DiceComposite of(CompiledDice dice) {
+            if (dice.sizeCount() == 0 && dice.poolCount() == 0)
+                return new Constant(dice.getConstant());
+            if (dice.getConstant() == 0 && dice.poolCount() == 0 && dice.dieCount() == 1)
+                return weigh(Type.of(dice.sidesAt(0)));
+            if (dice.getConstant() == 0 && dice.poolCount() == 1 && dice.sizeCount() == 0)
+                return dice.poolAt(0);
+            Sequence.Builder sequence = new Sequence.Builder().with(dice.getConstant());
+            for (int i = 0; i < dice.poolCount(); i++)
+                sequence.with(dice.poolAt(i));
+            for (int i = dice.sizeCount() - 1; i >= 0; i--) {
+                Die die = weigh(Type.of(dice.sidesAt(i)));
+                int count = dice.countAt(i);
+                // Several dice of a size become one counted node rather than a child per die
+                sequence.with(count == 1 ? die : new Pool.Builder().with(count, die.getSides()).build());
             }
+            return sequence.build();
         }
 
         /**
@@ -192,12 +234,7 @@ public class Die extends DiceComposite {
          * @return the die of the specified type
          */
         private static Die weigh(Type type) {
-            Die die = dice.get(type);
-            if (die == null) {
-                die = new Die(Type.sides(type));
-                dice.put(type, die);
-            }
-            return die;
+            return dice[type.ordinal()];
         }
         public static Die d4() {
             return weigh(Type.d4);
@@ -217,5 +254,8 @@ public class Die extends DiceComposite {
         public static Die d20() {
             return weigh(Type.d20);
         }
+        public static Die d100() {
+            return weigh(Type.d100);
+        }
     }
 }
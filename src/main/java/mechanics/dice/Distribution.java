@@ -0,0 +1,267 @@
+package mechanics.dice;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * The exact probability distribution of a dice expression.
+ * Stores the probability mass of every result between the minimum and maximum,
+ * built by convolving the distributions of the individual dice.
+ */
+public final class Distribution implements Serializable {
+    // The lowest possible result
+    private final int min;
+    // pmf[i] is the probability of rolling min + i
+    private final double[] pmf;
+    // cdf[i] is the probability of rolling at most min + i
+    private final double[] cdf;
+    private final double mean;
+    private final double variance;
+
+    /**
+     * Constructs a distribution from its probability mass, starting at the given minimum.
+     * @param min the lowest possible result
+     * @param pmf the probability of each result from the minimum upwards
+     */
+    private Distribution(int min, double[] pmf) {
+        this.min = min;
+        this.pmf = pmf;
+        this.cdf = new double[pmf.length];
+        double total = 0, mean = 0;
+        for (int i = 0; i < pmf.length; i++) {
+            total += pmf[i];
+            cdf[i] = total;
+            mean += (min + i) * pmf[i];
+        }
+        double variance = 0;
+        for (int i = 0; i < pmf.length; i++) {
+            double delta = min + i - mean;
+            variance += delta * delta * pmf[i];
+        }
+        this.mean = mean;
+        this.variance = variance;
+    }
+
+    /**
+     * Returns the distribution of a value that is always the given constant.
+     * @param value the constant value
+     * @return the distribution of the constant
+     */
+    public static Distribution constant(int value) {
+        return new Distribution(value, new double[]{1});
+    }
+
+    /**
+     * Returns the distribution of a single die.
+     * @param sides the number of sides on the die
+     * @return the uniform distribution from 1 to the number of sides
+     */
+    public static Distribution uniform(int sides) {
+        if (sides < 1)
+            throw new IllegalArgumentException("Dice must have at least one side: " + sides);
+        double[] pmf = new double[sides];
+        Arrays.fill(pmf, 1.0 / sides);
+        return new Distribution(1, pmf);
+    }
+
+    /**
+     * Returns the distribution of the given probability masses, starting at the given minimum.
+     * @param min the lowest possible result
+     * @param pmf the probability of each result from the minimum upwards
+     * @return the distribution of the probability masses
+     */
+    public static Distribution of(int min, double[] pmf) {
+        if (pmf.length == 0)
+            throw new IllegalArgumentException("Distribution must have at least one result");
+        return new Distribution(min, pmf.clone());
+    }
+
+    /**
+     * Builds the exact distribution of the given compiled dice.
+     * @param dice the compiled dice
+     * @return the distribution of the compiled dice
+     */
+    public static Distribution of(CompiledDice dice) {
+        Distribution result = constant(dice.getConstant());
+        for (int i = 0; i < dice.sizeCount(); i++)
+            result = result.convolve(uniform(dice.sidesAt(i)).times(dice.countAt(i)));
+        for (int i = 0; i < dice.poolCount(); i++)
+            result = result.convolve(dice.poolAt(i).distribution());
+        return result;
+    }
+
+    /**
+     * Returns the distribution of the sum of a value from this distribution and one from the other.
+     * @param other the other distribution
+     * @return the distribution of the sum
+     */
+    public Distribution convolve(Distribution other) {
+        if (other.pmf.length == 1)
+            return shift(other.min);
+        if (pmf.length == 1)
+            return other.shift(min);
+        double[] result = new double[pmf.length + other.pmf.length - 1];
+        for (int i = 0; i < pmf.length; i++) {
+            double p = pmf[i];
+            if (p == 0)
+                continue;
+            for (int j = 0; j < other.pmf.length; j++)
+                result[i + j] += p * other.pmf[j];
+        }
+        return new Distribution(min + other.min, result);
+    }
+
+    /**
+     * Returns the distribution of the sum of the given number of independent values from this distribution.
+     * Uses repeated squaring, so 20d6 costs five convolutions rather than twenty.
+     * @param count the number of values to sum
+     * @return the distribution of the sum
+     */
+    public Distribution times(int count) {
+        if (count < 0)
+            throw new IllegalArgumentException("Cannot sum a negative number of values: " + count);
+        Distribution result = constant(0);
+        Distribution square = this;
+        while (count > 0) {
+            if ((count & 1) == 1)
+                result = result.convolve(square);
+            count >>= 1;
+            if (count > 0)
+                square = square.convolve(square);
+        }
+        return result;
+    }
+
+    /**
+     * Returns this distribution shifted by the given constant.
+     * @param constant the constant to add to every result
+     * @return the shifted distribution
+     */
+    public Distribution shift(int constant) {
+        return constant == 0 ? this : new Distribution(min + constant, pmf);
+    }
+
+    /**
+     * Returns the distribution of the results raised to at least the given floor, as when damage never goes
+     * below 0: every result below the floor counts as the floor.
+     * @param floor the lowest result to keep
+     * @return the clamped distribution
+     */
+    public Distribution atLeastFloor(int floor) {
+        if (min >= floor)
+            return this;
+        if (max() <= floor)
+            return constant(floor);
+        int cut = floor - min;
+        double[] result = Arrays.copyOfRange(pmf, cut, pmf.length);
+        result[0] = cdf[cut];
+        return new Distribution(floor, result);
+    }
+
+    /**
+     * Returns the lowest possible result.
+     * @return the lowest possible result
+     */
+    public int min() {
+        return min;
+    }
+
+    /**
+     * Returns the highest possible result.
+     * @return the highest possible result
+     */
+    public int max() {
+        return min + pmf.length - 1;
+    }
+
+    /**
+     * Returns the expected value.
+     * @return the mean of the distribution
+     */
+    public double mean() {
+        return mean;
+    }
+
+    /**
+     * Returns the variance.
+     * @return the variance of the distribution
+     */
+    public double variance() {
+        return variance;
+    }
+
+    /**
+     * Returns the standard deviation.
+     * @return the standard deviation of the distribution
+     */
+    public double standardDeviation() {
+        return Math.sqrt(variance);
+    }
+
+    /**
+     * Returns the probability of rolling exactly the given value.
+     * @param value the value to roll
+     * @return the probability of the value
+     */
+    public double probability(int value) {
+        int index = value - min;
+        return index < 0 || index >= pmf.length ? 0 : pmf[index];
+    }
+
+    /**
+     * Returns the probability of rolling at most the given value.
+     * @param value the value to roll at most
+     * @return the cumulative probability up to the value
+     */
+    public double cdf(int value) {
+        int index = value - min;
+        if (index < 0)
+            return 0;
+        if (index >= cdf.length)
+            return 1;
+        return cdf[index];
+    }
+
+    /**
+     * Returns the probability of rolling at least the given value, such as meeting a DC.
+     * @param value the value to roll at least
+     * @return the probability of meeting the value
+     */
+    public double atLeast(int value) {
+        return 1 - cdf(value - 1);
+    }
+
+    /**
+     * Returns the smallest result whose cumulative probability reaches the given fraction.
+     * ex.: percentile(0.5) is the median
+     * @param fraction the fraction between 0 and 1
+     * @return the result at the given percentile
+     */
+    public int percentile(double fraction) {
+        if (fraction < 0 || fraction > 1)
+            throw new IllegalArgumentException("Percentile must be between 0 and 1: " + fraction);
+        // Allow for rounding error in the running sum
+        double target = fraction - 1e-12;
+        int index = Arrays.binarySearch(cdf, target);
+        if (index < 0)
+            index = -index - 1;
+        // Impossible results repeat the previous cumulative value; settle on the first
+        while (index > 0 && cdf[index - 1] >= target)
+            index--;
+        return min + Math.min(index, cdf.length - 1);
+    }
+
+    /**
+     * Returns the JSON representation of the distribution.
+     * @return the JSON representation of the distribution
+     */
+    @Override
+    public String toString() {
+        return "Distribution{" +
+                "min=" + min +
+                ", max=" + max() +
+                ", mean=" + mean +
+                ", variance=" + variance +
+                '}';
+    }
+}
@@ -0,0 +1,178 @@
+package mechanics.dice;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Single-pass parser for dice notation, such as "3d6+2", "1d20 - 1", "d8 + 1d6" or "4d6kh3".
+ * Parsed expressions are cached by their notation, since the same few notations are sent over and over.
+ */
+public final class Notation {
+    // The most notations kept in the cache before the oldest are evicted
+    private static final int CACHE_SIZE = 256;
+    // The most dice a whole expression may roll, so chat input cannot make the bot roll or convolve millions of dice
+    static final int MAX_DICE = 1000;
+    // The most sides a die may have
+    static final int MAX_SIDES = 10000;
+    private static final ConcurrentHashMap<String, CompiledDice> cache = new ConcurrentHashMap<>();
+    // Insertion order of the cached notations, oldest first
+    private static final ConcurrentLinkedQueue<String> order = new ConcurrentLinkedQueue<>();
+
+    private Notation() {
+    }
+
+    /**
+     * Parses the given dice notation into its compiled form, reusing a cached result when possible.
+     * @param notation the dice notation
+     * @return the compiled dice of the notation
+     * @throws IllegalArgumentException if the notation is malformed or uses an unknown die
+     */
+    public static CompiledDice compile(String notation) {
+        CompiledDice dice = cache.get(notation);
+        if (dice != null)
+            return dice;
+        dice = lex(notation);
+        if (cache.putIfAbsent(notation, dice) == null) {
+            order.add(notation);
+            while (cache.size() > CACHE_SIZE) {
+                String oldest = order.poll();
+                if (oldest == null)
+                    break;
+                cache.remove(oldest);
+            }
+        }
+        return dice;
+    }
+
+    /**
+     * Reads the notation from left to right without regular expressions or intermediate strings.
+     * Terms are either NdX (N defaults to 1) or a constant, separated by '+' or '-'.
+     * Dice may be followed by pool modifiers: '!' explodes, 'rN' rerolls results up to N once,
+     * 'khN'/'kN' and 'klN' keep the highest or lowest N, 'dlN'/'dN' and 'dhN' drop the lowest or highest N.
+     * At most {@link #MAX_DICE} dice of at most {@link #MAX_SIDES} sides may be rolled by the whole expression.
+     * @param notation the dice notation
+     * @return the compiled dice of the notation
+     */
+    static CompiledDice lex(String notation) {
+        CompiledDice.Builder builder = new CompiledDice.Builder();
+        int length = notation.length();
+        int i = skipSpace(notation, 0);
+        if (i == length)
+            throw error(notation, i, "empty expression");
+        int sign = 1;
+        long dice = 0;
+        if (notation.charAt(i) == '-' || notation.charAt(i) == '+') {
+            sign = notation.charAt(i) == '-' ? -1 : 1;
+            i = skipSpace(notation, i + 1);
+        }
+        while (true) {
+            // Term: [count] [d sides]
+            int start = i;
+            long count = 0;
+            while (i < length && isDigit(notation.charAt(i)))
+                count = accumulate(notation, i, count, notation.charAt(i++));
+            boolean hasCount = i > start;
+            if (i < length && (notation.charAt(i) == 'd' || notation.charAt(i) == 'D')) {
+                int sidesStart = ++i;
+                long sides = 0;
+                while (i < length && isDigit(notation.charAt(i)))
+                    sides = accumulate(notation, i, sides, notation.charAt(i++));
+                if (i == sidesStart)
+                    throw error(notation, i, "expected the number of sides");
+                if (sides > MAX_SIDES)
+                    throw error(notation, sidesStart, "more than " + MAX_SIDES + " sides");
+                dice += hasCount ? count : 1;
+                if (dice > MAX_DICE)
+                    throw error(notation, start, "more than " + MAX_DICE + " dice");
+                if (sign < 0)
+                    throw error(notation, start, "cannot subtract dice");
+                Die.Type.of((int) sides);
+                // Modifiers turn the dice into a pool
+                Pool.Builder pool = null;
+                while (i < length) {
+                    char modifier = Character.toLowerCase(notation.charAt(i));
+                    if (modifier != '!' && modifier != 'r' && modifier != 'k' && modifier != 'd')
+                        break;
+                    if (pool == null)
+                        pool = new Pool.Builder().with(hasCount ? (int) count : 1, (int) sides);
+                    int at = i++;
+                    if (modifier == '!') {
+                        pool.exploding();
+                        continue;
+                    }
+                    char direction = i < length ? Character.toLowerCase(notation.charAt(i)) : ' ';
+                    if (modifier != 'r' && (direction == 'h' || direction == 'l'))
+                        i++;
+                    int amountStart = i;
+                    long amount = 0;
+                    while (i < length && isDigit(notation.charAt(i)))
+                        amount = accumulate(notation, i, amount, notation.charAt(i++));
+                    if (i == amountStart)
+                        throw error(notation, i, "expected a number after '" + modifier + "'");
+                    try {
+                        if (modifier == 'r')
+                            pool.reroll((int) amount);
+                        else if (modifier == 'k')
+                            pool = direction == 'l' ? pool.keepLowest((int) amount) : pool.keepHighest((int) amount);
+                        else
+                            pool = direction == 'h' ? pool.dropHighest((int) amount) : pool.dropLowest((int) amount);
+                    } catch (IllegalStateException e) {
+                        throw error(notation, at, e.getMessage());
+                    }
+                }
+                if (pool == null) {
+                    builder.with(hasCount ? (int) count : 1, (int) sides);
+                } else {
+                    try {
+                        builder.with(pool.build());
+                    } catch (IllegalArgumentException e) {
+                        throw error(notation, start, e.getMessage());
+                    }
+                }
+            } else if (hasCount) {
+                builder.with(sign * (int) count);
+            } else {
+                throw error(notation, i, "expected a number or a die");
+            }
+            // Operator or end of input
+            i = skipSpace(notation, i);
+            if (i == length)
+                return builder.build();
+            char operator = notation.charAt(i);
+            if (operator != '+' && operator != '-')
+                throw error(notation, i, "expected '+' or '-'");
+            sign = operator == '-' ? -1 : 1;
+            i = skipSpace(notation, i + 1);
+        }
+    }
+
+    /**
+     * Returns the number of notations currently cached.
+     * @return the size of the cache
+     */
+    public static int cached() {
+        return cache.size();
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int skipSpace(String notation, int i) {
+        while (i < notation.length() && Character.isWhitespace(notation.charAt(i)))
+            i++;
+        return i;
+    }
+
+    private static long accumulate(String notation, int i, long value, char digit) {
+        value = value * 10 + (digit - '0');
+        if (value > Integer.MAX_VALUE)
+            throw error(notation, i, "number too large");
+        return value;
+    }
+
+    private static IllegalArgumentException error(String notation, int position, String reason) {
+        return new IllegalArgumentException("Invalid dice notation \"" + notation + "\" at position "
+                + position + ": " + reason);
+    }
+}
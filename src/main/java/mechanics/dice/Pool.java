@@ -0,0 +1,430 @@
+package mechanics.dice;
+
+import mechanics.Construct;
+import mechanics.Constructor;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * A pool of identical dice rolled together with modifiers applied to the individual dice.
+ * Supported modifiers:
+ * - keep highest/lowest (4d6kh3, 2d20kl1), or equivalently drop lowest/highest (4d6dl1)
+ * - reroll once any result at or below a threshold, keeping the new result (2d6r2)
+ * - exploding dice, where a maximum roll adds another roll of the die (1d6!)
+ * Every modifier has an exact distribution, so statistics never need sampling.
+ */
+public class Pool extends DiceComposite implements Construct {
+    // Orders pools canonically inside compiled dice
+    static final Comparator<Pool> ORDER = Comparator.comparingInt((Pool pool) -> pool.sides)
+            .thenComparingInt(pool -> pool.count)
+            .thenComparingInt(pool -> pool.keep)
+            .thenComparing(pool -> pool.highest)
+            .thenComparingInt(pool -> pool.reroll)
+            .thenComparing(pool -> pool.exploding);
+    // Per-thread scratch space for keeping dice, so rolling does not allocate
+    private static final ThreadLocal<int[]> scratch = ThreadLocal.withInitial(() -> new int[16]);
+
+    private final int count;
+    private final int sides;
+    // The number of dice kept, equal to count when nothing is dropped
+    private final int keep;
+    // Whether the highest or the lowest dice are kept
+    private final boolean highest;
+    // Results at or below this are rerolled once, 0 for no rerolls
+    private final int reroll;
+    private final boolean exploding;
+    // The most extra rolls an exploding die can chain, so rolls and distributions agree exactly
+    private final int explosions;
+    // Lazily built exact distribution; a race only builds an equal copy
+    private transient Distribution distribution;
+
+    /**
+     * Constructs a pool from the given Builder.
+     * @param builder the Builder to construct the pool
+     */
+    private Pool(Builder builder) {
+        this.count = builder.count;
+        this.sides = builder.sides;
+        this.keep = builder.drop ? builder.count - builder.keep : builder.keep;
+        this.highest = builder.highest;
+        this.reroll = builder.reroll;
+        this.exploding = builder.exploding;
+        this.explosions = exploding ? explosionLimit(sides) : 0;
+    }
+
+    /**
+     * Returns the number of extra rolls an exploding die may chain before the chance of
+     * going further drops below one in a trillion.
+     * @param sides the number of sides on the die
+     * @return the most extra rolls an exploding die may chain
+     */
+    private static int explosionLimit(int sides) {
+        return (int) Math.ceil(12 / Math.log10(sides));
+    }
+
+    /**
+     * Rolls the pool with the given source of randomness. Allocates nothing once warmed up.
+     * @param rng the source of randomness
+     * @return the total of the kept dice
+     */
+    @Override
+    public int roll(RandomSource rng) {
+        if (keep == count) {
+            int total = 0;
+            for (int i = 0; i < count; i++)
+                total += rollDie(rng);
+            return total;
+        }
+        int[] results = scratch.get();
+        if (results.length < count)
+            scratch.set(results = new int[count]);
+        for (int i = 0; i < count; i++)
+            results[i] = rollDie(rng);
+        Arrays.sort(results, 0, count);
+        int total = 0;
+        int start = highest ? count - keep : 0;
+        for (int i = start; i < start + keep; i++)
+            total += results[i];
+        return total;
+    }
+
+    /**
+     * Rolls a single die of the pool, applying the reroll and exploding modifiers.
+     * @param rng the source of randomness
+     * @return the result of the die
+     */
+    private int rollDie(RandomSource rng) {
+        int result = rng.nextInt(sides) + 1;
+        if (result <= reroll)
+            result = rng.nextInt(sides) + 1;
+        if (result == sides && exploding) {
+            int total = result;
+            for (int chained = 0; result == sides && chained < explosions; chained++) {
+                result = rng.nextInt(sides) + 1;
+                total += result;
+            }
+            return total;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the exact distribution of the pool, built once and cached.
+     * @return the distribution of the pool
+     */
+    @Override
+    public Distribution distribution() {
+        Distribution result = distribution;
+        if (result == null)
+            distribution = result = keep == count ? single().times(count) : kept();
+        return result;
+    }
+
+    /**
+     * Builds the distribution of a single die of the pool, including rerolls and explosions.
+     * @return the distribution of a single die
+     */
+    private Distribution single() {
+        double p = 1.0 / sides;
+        // Continuing after a maximum roll, starting with no extra rolls left
+        double[] chain = {1};
+        for (int left = 1; left <= explosions; left++) {
+            double[] next = new double[sides + chain.length];
+            for (int v = 1; v < sides; v++)
+                next[v] += p;
+            for (int v = 0; v < chain.length; v++)
+                next[sides + v] += p * chain[v];
+            chain = next;
+        }
+        double[] first = new double[sides + 1];
+        for (int v = 1; v <= sides; v++)
+            first[v] = (v > reroll ? p : 0) + reroll * p * p;
+        if (!exploding)
+            return Distribution.of(1, Arrays.copyOfRange(first, 1, first.length));
+        double[] pmf = new double[sides + chain.length];
+        System.arraycopy(first, 0, pmf, 0, sides);
+        for (int v = 0; v < chain.length; v++)
+            pmf[sides + v] += first[sides] * chain[v];
+        return Distribution.of(1, Arrays.copyOfRange(pmf, 1, pmf.length));
+    }
+
+    /**
+     * Builds the exact distribution of the kept dice.
+     * Walks the possible results from the best to the worst, tracking how many dice have been
+     * assigned so far and the sum of those that are kept, weighted by the ways to choose them.
+     * @return the distribution of the kept dice
+     */
+    private Distribution kept() {
+        Distribution die = single();
+        int lo = die.min(), hi = die.max();
+        int maxSum = keep * hi;
+        double[][] binomial = new double[count + 1][count + 1];
+        for (int n = 0; n <= count; n++) {
+            binomial[n][0] = 1;
+            for (int k = 1; k <= n; k++)
+                binomial[n][k] = binomial[n - 1][k - 1] + (k <= n - 1 ? binomial[n - 1][k] : 0);
+        }
+        // ways[j][s]: probability that j dice are assigned so far and the kept ones sum to s
+        double[][] ways = new double[count + 1][maxSum + 1];
+        ways[0][0] = 1;
+        for (int step = 0; step <= hi - lo; step++) {
+            int value = highest ? hi - step : lo + step;
+            double p = die.probability(value);
+            if (p == 0)
+                continue;
+            double[] powers = new double[count + 1];
+            powers[0] = 1;
+            for (int c = 1; c <= count; c++)
+                powers[c] = powers[c - 1] * p;
+            double[][] next = new double[count + 1][maxSum + 1];
+            for (int j = 0; j <= count; j++) {
+                for (int s = 0; s <= maxSum; s++) {
+                    double weight = ways[j][s];
+                    if (weight == 0)
+                        continue;
+                    int kept = Math.min(j, keep);
+                    for (int c = 0; c <= count - j; c++) {
+                        int added = Math.min(c, keep - kept);
+                        next[j + c][s + added * value] += weight * binomial[count - j][c] * powers[c];
+                    }
+                }
+            }
+            ways = next;
+        }
+        int minSum = keep * lo;
+        return Distribution.of(minSum, Arrays.copyOfRange(ways[count], minSum, maxSum + 1));
+    }
+
+    /**
+     * Tallies the pool into the given builder: a plain pool folds into the dice counts like that many dice,
+     * any other pool is kept as a single term.
+     * @param builder the builder to tally into
+     */
+    @Override
+    protected void tally(CompiledDice.Builder builder) {
+        if (isPlain())
+            builder.with(count, sides);
+        else
+            builder.with(this);
+    }
+
+    /**
+     * Returns whether the pool rolls every die once and keeps them all, like the same number of plain dice.
+     * @return true if the pool has no modifiers
+     */
+    public boolean isPlain() {
+        return keep == count && reroll == 0 && !exploding;
+    }
+
+    /**
+     * Returns the lowest possible result.
+     * @return the lowest possible result
+     */
+    public int min() {
+        return keep;
+    }
+
+    /**
+     * Returns the highest possible result.
+     * @return the highest possible result
+     */
+    public int max() {
+        return keep * sides * (explosions + 1);
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getSides() {
+        return sides;
+    }
+
+    public int getKeep() {
+        return keep;
+    }
+
+    public boolean keepsHighest() {
+        return highest;
+    }
+
+    public int getReroll() {
+        return reroll;
+    }
+
+    public boolean isExploding() {
+        return exploding;
+    }
+
+    /**
+     * Displays the pool in dice notation.
+     * @return the pool in dice notation, such as 4d6kh3
+     */
+    @Override
+    public String display() {
+        StringBuilder sb = new StringBuilder().append(count).append('d').append(sides);
+        if (exploding)
+            sb.append('!');
+        if (reroll > 0)
+            sb.append('r').append(reroll);
+        if (keep != count)
+            sb.append(highest ? "kh" : "kl").append(keep);
+        return sb.toString();
+    }
+
+    /**
+     * Returns the JSON representation of the pool.
+     * @return the JSON representation of the pool
+     */
+    @Override
+    public String toString() {
+        return "Pool{" +
+                "count=" + count +
+                ", sides=" + sides +
+                ", keep=" + keep +
+                ", highest=" + highest +
+                ", reroll=" + reroll +
+                ", exploding=" + exploding +
+                '}';
+    }
+
+    /**
+     * Compares the pool to another object by its dice and modifiers.
+     * @param other the object to compare
+     * @return true if the other object is a pool with the same dice and modifiers
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (other instanceof Pool pool)
+            return ORDER.compare(this, pool) == 0;
+        return false;
+    }
+
+    /**
+     * Hashes the pool by its dice and modifiers.
+     * @return the hash of the pool
+     */
+    @Override
+    public int hashCode() {
+        int result = 31 * count + sides;
+        result = 31 * result + keep;
+        result = 31 * result + (highest ? 1 : 0);
+        result = 31 * result + reroll;
+        return 31 * result + (exploding ? 1 : 0);
+    }
+
+    /**
+     * Returns the same pool with dice one size larger.
+     * ex.: 4d6kh3 -> 4d8kh3
+     * @return the pool with larger dice
+     */
+    @Override
+    public Pool explode() {
+        return deconstruct().with(count, Die.Type.explode(Die.Type.of(sides)).getSides()).build();
+    }
+
+    /**
+     * Deconstructs the pool into a Builder.
+     * @return a Builder with the same dice and modifiers
+     */
+    @Override
+    public Builder deconstruct() {
+        Builder builder = new Builder().with(count, sides).reroll(reroll);
+        if (exploding)
+            builder.exploding();
+        if (keep != count)
+            builder = highest ? builder.keepHighest(keep) : builder.keepLowest(keep);
+        return builder;
+    }
+
+    /**
+     * Builder for a pool of dice.
+     */
+    public static class Builder implements Constructor {
+        private int count = 1;
+        private int sides = 20;
+        private int keep = -1;
+        private boolean drop = false;
+        private boolean highest = true;
+        private int reroll = 0;
+        private boolean exploding = false;
+
+        /**
+         * Sets the number of dice and their number of sides.
+         * @param count the number of dice
+         * @param sides the number of sides on each die
+         * @return this Builder as per the Builder pattern
+         */
+        public Builder with(int count, int sides) {
+            this.count = count;
+            this.sides = Die.Type.of(sides).getSides();
+            return this;
+        }
+
+        public Builder keepHighest(int keep) {
+            return keep(keep, true, false);
+        }
+
+        public Builder keepLowest(int keep) {
+            return keep(keep, false, false);
+        }
+
+        public Builder dropLowest(int drop) {
+            return keep(drop, true, true);
+        }
+
+        public Builder dropHighest(int drop) {
+            return keep(drop, false, true);
+        }
+
+        private Builder keep(int amount, boolean highest, boolean drop) {
+            if (keep != -1)
+                throw new IllegalStateException("A pool can only keep or drop once");
+            this.keep = amount;
+            this.highest = highest;
+            this.drop = drop;
+            return this;
+        }
+
+        /**
+         * Rerolls once any die at or below the given result, keeping the new result.
+         * ex.: Great Weapon Fighting rerolls 1s and 2s, so reroll(2)
+         * @param atMost the highest result to reroll
+         * @return this Builder as per the Builder pattern
+         */
+        public Builder reroll(int atMost) {
+            this.reroll = atMost;
+            return this;
+        }
+
+        /**
+         * Makes the dice explode, rolling again and adding whenever they roll their maximum.
+         * @return this Builder as per the Builder pattern
+         */
+        public Builder exploding() {
+            this.exploding = true;
+            return this;
+        }
+
+        /**
+         * Builds the pool after checking that its modifiers make sense.
+         * @return the pool
+         */
+        @Override
+        public Pool build() {
+            if (count < 1)
+                throw new IllegalArgumentException("A pool needs at least one die: " + count);
+            if (keep == -1) {
+                keep = count;
+                drop = false;
+            }
+            int kept = drop ? count - keep : keep;
+            if (kept < 1 || kept > count)
+                throw new IllegalArgumentException("Must keep between 1 and " + count + " dice: " + kept);
+            if (reroll < 0 || reroll >= sides)
+                throw new IllegalArgumentException("Can only reroll results below " + sides + ": " + reroll);
+            return new Pool(this);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package mechanics.dice;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A source of random integers used to roll dice.
+ * Decouples the dice from any single random number generator, so that parallel simulations
+ * do not contend on a shared generator and seeded runs can be replayed exactly.
+ */
+public interface RandomSource {
+    /**
+     * The default source, backed by a generator local to the calling thread.
+     */
+    RandomSource DEFAULT = Local.INSTANCE;
+
+    /**
+     * Returns a random integer between 0 (inclusive) and the given bound (exclusive).
+     * @param bound the upper bound, must be positive
+     * @return a random integer in [0, bound)
+     */
+    int nextInt(int bound);
+
+    /**
+     * Rolls a single die with the given number of sides.
+     * @param sides the number of sides on the die
+     * @return a random number between 1 and the number of sides
+     */
+    default int roll(int sides) {
+        return nextInt(sides) + 1;
+    }
+
+    /**
+     * Returns a source that is independent from this one and safe to hand to another thread.
+     * Sources that are already safe to share may return themselves.
+     * @return an independent source
+     */
+    default RandomSource split() {
+        return this;
+    }
+
+    /**
+     * Returns the per-thread source. Every thread draws from its own generator without contention.
+     * @return the per-thread source
+     */
+    static RandomSource local() {
+        return Local.INSTANCE;
+    }
+
+    /**
+     * Returns a reproducible source seeded with the given seed.
+     * A seeded source is not thread-safe; give each thread its own through {@link #split()}.
+     * @param seed the seed of the source
+     * @return a seeded source
+     */
+    static RandomSource seeded(long seed) {
+        return new Seeded(new SplittableRandom(seed));
+    }
+
+    /**
+     * Source backed by ThreadLocalRandom, shared freely between threads.
+     */
+    enum Local implements RandomSource {
+        INSTANCE;
+
+        @Override
+        public int nextInt(int bound) {
+            return ThreadLocalRandom.current().nextInt(bound);
+        }
+    }
+
+    /**
+     * Source backed by a SplittableRandom, reproducible from its seed.
+     */
+    final class Seeded implements RandomSource {
+        private final SplittableRandom random;
+
+        private Seeded(SplittableRandom random) {
+            this.random = random;
+        }
+
+        @Override
+        public int nextInt(int bound) {
+            return random.nextInt(bound);
+        }
+
+        /**
+         * Splits off a new seeded source whose sequence is determined by this source's state.
+         * @return an independent seeded source
+         */
+        @Override
+        public Seeded split() {
+            return new Seeded(random.split());
+        }
+    }
+}
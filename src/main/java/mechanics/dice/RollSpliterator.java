@@ -0,0 +1,67 @@
+package mechanics.dice;
+
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+
+/**
+ * Spliterator over a fixed number of rolls of a Rollable.
+ * Every split draws from its own source split off the parent's, so parallel streams never share a generator.
+ */
+final class RollSpliterator implements Spliterator.OfInt {
+    // Below this many rolls, splitting costs more than it saves
+    private static final long THRESHOLD = 1 << 12;
+
+    private final Rollable rollable;
+    private final RandomSource rng;
+    private long remaining;
+
+    /**
+     * Constructs a spliterator over the given number of rolls.
+     * @param rollable the Rollable to roll
+     * @param remaining the number of rolls
+     * @param rng the source of randomness
+     */
+    RollSpliterator(Rollable rollable, long remaining, RandomSource rng) {
+        this.rollable = rollable;
+        this.remaining = remaining;
+        this.rng = rng;
+    }
+
+    @Override
+    public boolean tryAdvance(IntConsumer action) {
+        if (remaining <= 0)
+            return false;
+        remaining--;
+        action.accept(rollable.roll(rng));
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(IntConsumer action) {
+        for (; remaining > 0; remaining--)
+            action.accept(rollable.roll(rng));
+    }
+
+    /**
+     * Hands half of the remaining rolls to a new spliterator with its own source.
+     * @return the spliterator over the other half, or null if too few rolls remain
+     */
+    @Override
+    public Spliterator.OfInt trySplit() {
+        if (remaining < THRESHOLD)
+            return null;
+        long half = remaining >>> 1;
+        remaining -= half;
+        return new RollSpliterator(rollable, half, rng.split());
+    }
+
+    @Override
+    public long estimateSize() {
+        return remaining;
+    }
+
+    @Override
+    public int characteristics() {
+        return SIZED | SUBSIZED | IMMUTABLE | NONNULL;
+    }
+}
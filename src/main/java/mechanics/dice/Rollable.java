@@ -1,5 +1,8 @@
 package mechanics.dice;
 
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
 /**
  * Interface for dice that can be rolled.
  */
@@ -8,17 +11,57 @@ public interface Rollable {
      * Rolls the dice and returns the result, including the rollAfter result in most cases.
      * @return The result of the roll.
      */
-    int roll();
+    default int roll() {
+        return roll(RandomSource.DEFAULT);
+    }
 
     /**
-     * Rolls the constant value of the Composite
-     * @return The constant value of the Composite
+     * Rolls the dice with the given source of randomness.
+     * @param rng The source of randomness to roll with.
+     * @return The result of the roll.
      */
-    int rollAfter();
+    int roll(RandomSource rng);
 
     /**
-     * Sets the constant value of the Composite
-     * @param constant The constant value to set
+     * Rolls the dice the given number of times, writing each result into the array.
+     * @param out The array to fill.
+     * @param offset The index of the first result in the array.
+     * @param n The number of rolls.
+     * @param rng The source of randomness to roll with.
      */
-    void setConstant(int constant);
+    default void rollInto(int[] out, int offset, int n, RandomSource rng) {
+        if (offset < 0 || n < 0 || offset > out.length - n)
+            throw new IndexOutOfBoundsException("Cannot write " + n + " rolls at " + offset
+                    + " into an array of length " + out.length);
+        for (int i = offset, end = offset + n; i < end; i++)
+            out[i] = roll(rng);
+    }
+
+    /**
+     * Returns a stream of the given number of rolls drawn from the default source.
+     * @param n The number of rolls.
+     * @return A stream of rolls, which may be made parallel.
+     */
+    default IntStream rolls(long n) {
+        return rolls(n, RandomSource.DEFAULT);
+    }
+
+    /**
+     * Returns a stream of the given number of rolls. When run in parallel, every split of the stream
+     * rolls with its own source split off the given one.
+     * @param n The number of rolls.
+     * @param rng The source of randomness to roll with.
+     * @return A stream of rolls, which may be made parallel.
+     */
+    default IntStream rolls(long n, RandomSource rng) {
+        if (n < 0)
+            throw new IllegalArgumentException("Cannot roll a negative number of times: " + n);
+        return StreamSupport.intStream(new RollSpliterator(this, n, rng), false);
+    }
+
+    /**
+     * Rolls the constant value of the Composite
+     * @return The constant value of the Composite
+     */
+    int rollAfter();
 }
@@ -17,10 +17,27 @@ public class Sequence extends DiceComposite implements Construct {
      * @param builder the Builder to construct the Sequence
      */
     protected Sequence(Builder builder) {
-        setConstant(builder.constant);
-        for (DiceComposite die : builder.dice) {
-            add(die);
-        }
+        super(builder.dice, builder.constant);
+    }
+
+    /**
+     * Add a die to a copy of the Sequence, keeping the kind of Sequence
+     * @param other the die to add
+     * @return a new Sequence with the die added
+     */
+    @Override
+    public Sequence add(DiceComposite other) {
+        return deconstruct().with(other).build();
+    }
+
+    /**
+     * Add a constant to a copy of the Sequence, keeping the kind of Sequence
+     * @param constant the constant to add
+     * @return a new Sequence with the constant added
+     */
+    @Override
+    public Sequence add(int constant) {
+        return deconstruct().with(constant).build();
     }
 
     /**
@@ -28,7 +45,7 @@ public class Sequence extends DiceComposite implements Construct {
      * @return a new Sequence with the same children as this Sequence
      */
     public Sequence copy() {
-        Builder builder = new Builder();
+        Builder builder = new Builder().with(rollAfter());
         for (DiceComposite die : getChildren()) {
             if (die instanceof Sequence sequence)
                 builder.with(sequence.copy());
@@ -56,26 +73,35 @@ public class Sequence extends DiceComposite implements Construct {
     @Override
     public String display() {
         StringBuilder sb = new StringBuilder();
-        // Allocate room for the six Die types
+        // Allocate room for every Die type
         int[] counts = new int[Die.Type.values().length];
         // Count the number of each Die type
         for (DiceComposite dc : getChildren()) {
             if (dc instanceof Die die)
                 counts[die.type().ordinal()]++;
+            else if (dc instanceof Pool pool && pool.isPlain() && Die.Type.isStandard(pool.getSides()))
+                counts[Die.Type.of(pool.getSides()).ordinal()] += pool.getCount();
         }
         // Append the number of each Die type
         for (int i = 0; i < counts.length; i++) {
             if (counts[i] > 0)
                 sb.append(counts[i]).append(Die.Type.values()[i]).append(" + ");
         }
-        // Append the constant if it exists
+        // Append the pools, which keep their modifiers
+        for (DiceComposite dc : getChildren()) {
+            if (dc instanceof Pool pool && !(pool.isPlain() && Die.Type.isStandard(pool.getSides())))
+                sb.append(pool.display()).append(" + ");
+        }
+        // Append the constant if it exists, with its sign
         if (rollAfter() > 0)
             sb.append(rollAfter());
+        else if (rollAfter() < 0 && !sb.isEmpty())
+            sb.replace(sb.length() - 3, sb.length(), " - ").append(-rollAfter());
         else if (!sb.isEmpty())
             // Remove the trailing " + "
             sb.delete(sb.length() - 3, sb.length());
         else
-            sb.append("0");
+            sb.append(rollAfter());
         return sb.toString();
     }
 
@@ -84,6 +110,8 @@ public class Sequence extends DiceComposite implements Construct {
         for (DiceComposite composite : getChildren()) {
             if (composite instanceof Die die) {
                 sides.add(die.getSides());
+            } else if (composite instanceof Pool pool) {
+                sides.add(pool.getSides());
             } else if (composite instanceof Sequence sequence) {
                 sides.addAll(sequence.getSides());
             }
@@ -96,6 +124,8 @@ public class Sequence extends DiceComposite implements Construct {
         for (DiceComposite composite : getChildren()) {
             if (composite instanceof Die)
                 count++;
+            else if (composite instanceof Pool pool)
+                count += pool.getCount();
             else if (composite instanceof Sequence sequence)
                 count += sequence.dieCount();
         }
@@ -114,20 +144,17 @@ public class Sequence extends DiceComposite implements Construct {
     }
 
     /**
-     * Check if the Sequence is equal to another Object.
+     * Check if the Sequence is equal to another Object by comparing their canonical forms,
+     * so the order and nesting of the dice do not matter.
      * @param other the Object to compare
-     * @return true if the Object is a Sequence with the same children, false otherwise
+     * @return true if the Object is the same kind of Sequence rolling the same dice, false otherwise
      */
     @Override
     public boolean equals(Object other) {
-        if (other instanceof Sequence sequence) {
-            List<DiceComposite> otherDice = sequence.copy().getChildren();
-            for (DiceComposite die : getChildren()) {
-                if (!otherDice.remove(die))
-                    return false;
-            }
-            return otherDice.isEmpty();
-        }
+        if (this == other)
+            return true;
+        if (other instanceof Sequence sequence && sequence.getClass() == getClass())
+            return compile().equals(sequence.compile());
         return false;
     }
 
@@ -174,6 +201,7 @@ public class Sequence extends DiceComposite implements Construct {
                 for (DiceComposite child : die.getChildren()) {
                     with(child);
                 }
+                this.constant += die.rollAfter();
                 return this;
             }
             this.dice.add(die);